@@ -0,0 +1,110 @@
+import com.example.awscloudconnect.service.TermMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Throughput of TermMatcher against message size and pattern count, next to a
+ * naive per-term indexOf scan for reference.
+ *
+ * Usage (after mvn compile):
+ *   java -cp target/classes scripts/MatcherBenchmark.java [millis-per-cell]
+ *
+ * Terms are random 4-10 letter words, half blocked and half allowed. Messages
+ * are random words that never contain a term, so each scan runs to the end,
+ * which is the common case for clean chat traffic.
+ */
+public class MatcherBenchmark {
+
+    private static final int[] PATTERN_COUNTS = { 10, 100, 1_000, 10_000 };
+    private static final int[] MESSAGE_SIZES = { 64, 512, 4_096 };
+
+    private static volatile int sink; // keeps the JIT from dropping the scans
+
+    public static void main(String[] args) {
+        long budgetMs = args.length > 0 ? Long.parseLong(args[0]) : 500;
+        Random random = new Random(42);
+
+        System.out.printf("%8s %8s %14s %12s %14s %12s %10s%n", "patterns", "bytes", "matcher msg/s", "MB/s",
+                "indexOf msg/s", "MB/s", "compile ms");
+        for (int patterns : PATTERN_COUNTS) {
+            List<String> blocked = new ArrayList<>();
+            List<String> allowed = new ArrayList<>();
+            for (int i = 0; i < patterns; i++) {
+                (i % 2 == 0 ? blocked : allowed).add("zq" + word(random, 2, 8));
+            }
+            long compileStart = System.nanoTime();
+            TermMatcher matcher = TermMatcher.compile(blocked, allowed);
+            double compileMs = (System.nanoTime() - compileStart) / 1e6;
+
+            for (int size : MESSAGE_SIZES) {
+                String[] messages = new String[64];
+                for (int i = 0; i < messages.length; i++) {
+                    messages[i] = message(random, size);
+                }
+
+                double matcherRate = rate(budgetMs, messages, m -> matcher.classify(m) != null);
+                double naiveRate = rate(budgetMs, messages, m -> naive(m, blocked, allowed));
+                System.out.printf("%8d %8d %14.0f %12.1f %14.0f %12.1f %10.1f%n", patterns, size, matcherRate,
+                        matcherRate * size / 1e6, naiveRate, naiveRate * size / 1e6, compileMs);
+            }
+        }
+    }
+
+    private interface Scan {
+        boolean run(String message);
+    }
+
+    /** Messages per second, after a warm-up pass of the same length. */
+    private static double rate(long budgetMs, String[] messages, Scan scan) {
+        for (int pass = 0; pass < 2; pass++) {
+            long deadline = System.nanoTime() + budgetMs * 1_000_000;
+            long count = 0;
+            long start = System.nanoTime();
+            while (System.nanoTime() < deadline) {
+                for (String message : messages) {
+                    sink += scan.run(message) ? 1 : 0;
+                }
+                count += messages.length;
+            }
+            if (pass == 1) {
+                return count / ((System.nanoTime() - start) / 1e9);
+            }
+        }
+        return 0;
+    }
+
+    private static boolean naive(String message, List<String> blocked, List<String> allowed) {
+        String text = message.toLowerCase(Locale.ROOT);
+        for (String term : blocked) {
+            if (text.contains(term))
+                return true;
+        }
+        for (String term : allowed) {
+            if (text.contains(term))
+                return true;
+        }
+        return false;
+    }
+
+    private static String message(Random random, int size) {
+        StringBuilder text = new StringBuilder(size);
+        while (text.length() < size) {
+            text.append(word(random, 2, 8)).append(' ');
+        }
+        text.setLength(size);
+        return text.toString();
+    }
+
+    /** Random lowercase word without 'z', so it never contains a "zq..." term. */
+    private static String word(Random random, int min, int max) {
+        int length = min + random.nextInt(max - min + 1);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(25));
+        }
+        return new String(chars);
+    }
+}
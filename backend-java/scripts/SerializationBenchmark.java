@@ -0,0 +1,116 @@
+import com.example.awscloudconnect.config.WireViewModule;
+import com.example.awscloudconnect.model.LiveUserView;
+import com.example.awscloudconnect.model.Message;
+import com.example.awscloudconnect.model.MessageView;
+import com.example.awscloudconnect.model.User;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Cost of the socket payloads as entities versus the wire views written by
+ * WireViewModule, with the same Jackson setup the Socket.IO server uses.
+ *
+ * Usage (after mvn compile and mvn dependency:build-classpath -Dmdep.outputFile=cp.txt):
+ *   java -cp target/classes:$(cat cp.txt) scripts/SerializationBenchmark.java [millis-per-cell]
+ *
+ * The view columns include the entity-to-view conversion, since the emit paths
+ * pay for it too. Messages carry their embedded sender, as they do when they
+ * come out of the history and approval paths.
+ */
+public class SerializationBenchmark {
+
+    private static volatile int sink; // keeps the JIT from dropping the writes
+
+    public static void main(String[] args) throws Exception {
+        long budgetMs = args.length > 0 ? Long.parseLong(args[0]) : 500;
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModules(new JavaTimeModule(), new WireViewModule())
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        Random random = new Random(42);
+
+        List<Message> messages = new ArrayList<>();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            User user = user(random, i);
+            users.add(user);
+            messages.add(message(random, user, i));
+        }
+        List<Message> batch = messages.subList(0, 50);
+
+        System.out.printf("%-22s %14s %10s %14s %10s %8s%n", "payload", "entity ops/s", "bytes", "view ops/s",
+                "bytes", "speedup");
+        row(mapper, budgetMs, "receive_message", () -> messages.get(0), () -> MessageView.of(messages.get(0)));
+        row(mapper, budgetMs, "receive_messages x50", () -> batch,
+                () -> batch.stream().map(MessageView::of).toList());
+        row(mapper, budgetMs, "live_users x100", () -> users, () -> users.stream().map(LiveUserView::of).toList());
+    }
+
+    private static void row(ObjectMapper mapper, long budgetMs, String name, Supplier<Object> entity,
+            Supplier<Object> view) throws Exception {
+        int entityBytes = mapper.writeValueAsBytes(entity.get()).length;
+        int viewBytes = mapper.writeValueAsBytes(view.get()).length;
+        double entityRate = rate(mapper, budgetMs, entity);
+        double viewRate = rate(mapper, budgetMs, view);
+        System.out.printf("%-22s %14.0f %10d %14.0f %10d %7.2fx%n", name, entityRate, entityBytes, viewRate,
+                viewBytes, viewRate / entityRate);
+    }
+
+    /** Payloads written per second, after a warm-up pass of the same length. */
+    private static double rate(ObjectMapper mapper, long budgetMs, Supplier<Object> payload) throws Exception {
+        for (int pass = 0; pass < 2; pass++) {
+            long deadline = System.nanoTime() + budgetMs * 1_000_000;
+            long count = 0;
+            long start = System.nanoTime();
+            while (System.nanoTime() < deadline) {
+                for (int i = 0; i < 64; i++) {
+                    sink += mapper.writeValueAsBytes(payload.get()).length;
+                }
+                count += 64;
+            }
+            if (pass == 1) {
+                return count / ((System.nanoTime() - start) / 1e9);
+            }
+        }
+        return 0;
+    }
+
+    private static User user(Random random, int i) {
+        User user = new User();
+        user.setId(hex(random, 24));
+        user.setUsername("user" + i);
+        user.setRole(i == 0 ? "admin" : "user");
+        user.setRoom(hex(random, 24));
+        user.setStatus("approved");
+        user.setOnline(true);
+        user.setSocketId(hex(random, 20));
+        return user;
+    }
+
+    private static Message message(Random random, User sender, int i) {
+        Message message = new Message();
+        message.setId(hex(random, 24));
+        message.setRoomId(sender.getRoom());
+        message.setSenderId(sender.getId());
+        message.setSenderUsername(sender.getUsername());
+        message.setContent("message " + i + " about the deploy window and the rollback plan");
+        message.setStatus("approved");
+        message.setCreatedAt(LocalDateTime.now());
+        message.setSender(sender);
+        return message;
+    }
+
+    private static String hex(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(Character.forDigit(random.nextInt(16), 16));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,49 @@
+#!/usr/bin/env bash
+# Measures cold-start time to the first accepted Socket.IO connection.
+#
+# Usage: scripts/startup-benchmark.sh [runs] -- <command to start the backend>
+#   scripts/startup-benchmark.sh 5 -- java -jar target/nexus-connect-0.0.1-SNAPSHOT.jar
+#   scripts/startup-benchmark.sh 5 -- java -XX:SharedArchiveFile=application.jsa \
+#       -Dspring.aot.enabled=true -Dspring.profiles.active=faststart -jar application/app.jar
+#
+# Each run starts the command, polls the Socket.IO handshake endpoint until it
+# answers, and records the wall-clock time. The backend also logs its own
+# "First socket connection accepted ... after JVM start" line for comparison.
+
+set -euo pipefail
+
+RUNS=${1:-5}
+shift || true
+[ "${1:-}" = "--" ] && shift
+if [ $# -eq 0 ]; then
+    echo "usage: $0 [runs] -- <start command>" >&2
+    exit 1
+fi
+
+PORT=${SOCKET_PORT:-9092}
+URL="http://localhost:${PORT}/socket.io/?EIO=4&transport=polling"
+results=()
+
+for run in $(seq 1 "$RUNS"); do
+    start=$(date +%s%N)
+    "$@" > "startup-run-${run}.log" 2>&1 &
+    pid=$!
+
+    until curl -sf -o /dev/null "$URL"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "run ${run}: backend exited before accepting a connection (see startup-run-${run}.log)" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    end=$(date +%s%N)
+
+    elapsed=$(( (end - start) / 1000000 ))
+    results+=("$elapsed")
+    echo "run ${run}: ${elapsed} ms"
+
+    kill "$pid" && wait "$pid" 2>/dev/null || true
+done
+
+sorted=($(printf '%s\n' "${results[@]}" | sort -n))
+echo "min ${sorted[0]} ms, median ${sorted[$(( ${#sorted[@]} / 2 ))]} ms, max ${sorted[-1]} ms over ${RUNS} runs"
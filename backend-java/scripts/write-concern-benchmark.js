@@ -0,0 +1,55 @@
+// Latency/throughput of each write tier against a local Mongo.
+//
+// Usage: mongosh "mongodb://localhost:27017/nexus_bench?replicaSet=rs0" scripts/write-concern-benchmark.js
+//   BENCH_OPS=5000 mongosh ... scripts/write-concern-benchmark.js
+//
+// Inserts message-shaped documents one at a time (as onSendMessage does) and
+// updates user-shaped documents (as presence changes do) under every tier,
+// then prints p50/p99 latency and sequential throughput. Against a standalone
+// server the majority tiers behave like w1; use a replica set to see the gap.
+
+const ops = Number(process.env.BENCH_OPS || 2000);
+const tiers = {
+  "unacknowledged": { w: 0 },
+  "w1": { w: 1, j: false },
+  "w1-journaled": { w: 1, j: true },
+  "majority": { w: "majority", j: false, wtimeout: 5000 },
+  "majority-journaled": { w: "majority", j: true, wtimeout: 5000 },
+};
+
+function percentile(sorted, p) {
+  return sorted[Math.min(sorted.length - 1, Math.floor(sorted.length * p))];
+}
+
+function measure(label, tier, concern, write) {
+  const latencies = [];
+  const started = Date.now();
+  for (let i = 0; i < ops; i++) {
+    const t0 = process.hrtime.bigint();
+    write(i, concern);
+    latencies.push(Number(process.hrtime.bigint() - t0) / 1e6);
+  }
+  const elapsed = (Date.now() - started) / 1000;
+  latencies.sort((a, b) => a - b);
+  print(`${label.padEnd(10)} ${tier.padEnd(20)} p50=${percentile(latencies, 0.5).toFixed(3)}ms `
+    + `p99=${percentile(latencies, 0.99).toFixed(3)}ms ${(ops / elapsed).toFixed(0)} ops/s`);
+}
+
+const messages = db.getCollection("bench_messages");
+const users = db.getCollection("bench_users");
+
+for (const [tier, concern] of Object.entries(tiers)) {
+  messages.drop();
+  measure("insert", tier, concern, (i, wc) => messages.insertOne({
+    roomId: "bench", senderId: "u" + (i % 50), senderUsername: "user" + (i % 50),
+    content: "benchmark message " + i, status: "approved", createdAt: new Date(),
+  }, { writeConcern: wc }));
+
+  users.drop();
+  users.insertMany([...Array(50).keys()].map(i => ({ _id: "u" + i, room: "bench", online: false })));
+  measure("presence", tier, concern, (i, wc) => users.updateOne(
+    { _id: "u" + (i % 50) }, { $set: { online: i % 2 === 0, socketId: "s" + i } }, { writeConcern: wc }));
+}
+
+messages.drop();
+users.drop();
@@ -0,0 +1,21 @@
+package com.example.awscloudconnect.config;
+
+import com.example.awscloudconnect.repository.WriteDurability;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+@Configuration
+public class MongoConfig {
+
+    /** Same template Spring Boot would build, plus per-operation write concerns. */
+    @Bean
+    public MongoTemplate mongoTemplate(MongoDatabaseFactory factory, MongoConverter converter,
+            WriteDurability writeDurability) {
+        MongoTemplate template = new MongoTemplate(factory, converter);
+        template.setWriteConcernResolver(writeDurability);
+        return template;
+    }
+}
@@ -20,9 +20,9 @@ public class SocketIOConfig {
         config.setHostname("0.0.0.0");
         config.setPort(port);
 
-        // Configure Jackson with JSR310 support
+        // Configure Jackson with JSR310 support and the compact wire view serializers
         JacksonJsonSupport jsonSupport = new JacksonJsonSupport(
-                new JavaTimeModule());
+                new JavaTimeModule(), new WireViewModule());
         config.setJsonSupport(jsonSupport);
 
         // Allow CORS
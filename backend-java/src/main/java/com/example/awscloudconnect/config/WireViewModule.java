@@ -0,0 +1,62 @@
+package com.example.awscloudconnect.config;
+
+import com.example.awscloudconnect.model.LiveUserView;
+import com.example.awscloudconnect.model.MessageView;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Hand-written serializers for the socket wire views, so the hot emit paths
+ * skip bean introspection and never write null fields.
+ */
+public class WireViewModule extends SimpleModule {
+
+    public WireViewModule() {
+        super("WireViewModule");
+        addSerializer(MessageView.class, new MessageViewSerializer());
+        addSerializer(LiveUserView.class, new LiveUserViewSerializer());
+    }
+
+    static final class MessageViewSerializer extends StdSerializer<MessageView> {
+        MessageViewSerializer() {
+            super(MessageView.class);
+        }
+
+        @Override
+        public void serialize(MessageView view, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            writeIfPresent(gen, "id", view.id());
+            writeIfPresent(gen, "senderId", view.senderId());
+            writeIfPresent(gen, "senderUsername", view.senderUsername());
+            writeIfPresent(gen, "content", view.content());
+            writeIfPresent(gen, "status", view.status());
+            gen.writeNumberField("createdAt", view.createdAt());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class LiveUserViewSerializer extends StdSerializer<LiveUserView> {
+        LiveUserViewSerializer() {
+            super(LiveUserView.class);
+        }
+
+        @Override
+        public void serialize(LiveUserView view, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            writeIfPresent(gen, "id", view.id());
+            writeIfPresent(gen, "username", view.username());
+            writeIfPresent(gen, "role", view.role());
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeIfPresent(JsonGenerator gen, String field, String value) throws IOException {
+        if (value != null) {
+            gen.writeStringField(field, value);
+        }
+    }
+}
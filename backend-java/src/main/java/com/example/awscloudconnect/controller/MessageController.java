@@ -2,16 +2,23 @@ package com.example.awscloudconnect.controller;
 
 import com.example.awscloudconnect.model.Message;
 import com.example.awscloudconnect.model.Room;
-import com.example.awscloudconnect.repository.MessageRepository;
+import com.example.awscloudconnect.repository.MessageStore;
 import com.example.awscloudconnect.repository.RoomRepository;
 import com.example.awscloudconnect.repository.UserRepository;
+import com.example.awscloudconnect.service.MessageArchive;
+import com.example.awscloudconnect.service.MessageRetentionService;
+import com.example.awscloudconnect.service.MessageSearchIndex;
+import com.example.awscloudconnect.service.RoomStatsService;
 import com.example.awscloudconnect.service.SocketService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/messages")
@@ -21,7 +28,7 @@ import java.util.Map;
 public class MessageController {
 
     @Autowired
-    private MessageRepository messageRepository;
+    private MessageStore messageStore;
 
     @Autowired
     private RoomRepository roomRepository;
@@ -32,14 +39,38 @@ public class MessageController {
     @Autowired
     private SocketService socketService;
 
-    /** Fetch all approved messages for a given room code (for the admin panel). */
+    @Autowired
+    private MessageRetentionService messageRetentionService;
+
+    @Autowired
+    private MessageArchive messageArchive;
+
+    @Autowired
+    private MessageSearchIndex messageSearchIndex;
+
+    @Autowired
+    private RoomStatsService roomStatsService;
+
+    /**
+     * Fetch approved messages for a given room code (for the admin panel).
+     * Without {@code page} this returns everything still in Mongo; with it,
+     * pages are counted back from the newest message and fall through to the
+     * archive once Mongo runs out.
+     */
     @GetMapping("/approved/{roomCode}")
-    public ResponseEntity<?> getApprovedMessages(@PathVariable("roomCode") String roomCode) {
+    public ResponseEntity<?> getApprovedMessages(@PathVariable("roomCode") String roomCode,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
         Room room = roomRepository.findByRoomCode(roomCode.trim().toUpperCase()).orElse(null);
         if (room == null) {
             return ResponseEntity.notFound().build();
         }
-        List<Message> approved = messageRepository.findByRoomIdAndStatusOrderByCreatedAtAsc(room.getId(), "approved");
+        if (page != null && (page < 0 || size <= 0)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid page or size"));
+        }
+        List<Message> approved = (page != null)
+                ? messageRetentionService.findHistoryPage(room.getId(), "approved", page, size)
+                : messageStore.findByRoomIdAndStatus(room.getId(), "approved");
         // Populate sender details
         for (Message msg : approved) {
             if (msg.getSenderId() != null) {
@@ -49,18 +80,75 @@ public class MessageController {
         return ResponseEntity.ok(approved);
     }
 
+    /**
+     * Full-text search over a room's messages. Every word in {@code q} must
+     * match; results are paged newest first and can be filtered by status.
+     */
+    @GetMapping("/search/{roomCode}")
+    public ResponseEntity<?> searchMessages(@PathVariable("roomCode") String roomCode,
+            @RequestParam("q") String query,
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        Room room = roomRepository.findByRoomCode(roomCode.trim().toUpperCase()).orElse(null);
+        if (room == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (page < 0 || size <= 0 || size > 200) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid page or size"));
+        }
+
+        MessageSearchIndex.SearchResult result = messageSearchIndex.search(room.getId(), query, status, page, size);
+
+        // Fetch the page in one round trip and keep the index's newest-first order
+        Map<String, Message> byId = messageStore.findAllById(result.messageIds()).stream()
+                .collect(Collectors.toMap(Message::getId, Function.identity()));
+        List<Message> messages = result.messageIds().stream()
+                .map(byId::get)
+                .filter(msg -> msg != null)
+                .collect(Collectors.toList());
+        for (Message msg : messages) {
+            if (msg.getSenderId() != null) {
+                userRepository.findById(msg.getSenderId()).ifPresent(msg::setSender);
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("total", result.total());
+        response.put("page", page);
+        response.put("size", size);
+        response.put("messages", messages);
+        return ResponseEntity.ok(response);
+    }
+
     /** Delete a message by ID and notify all connected clients via socket. */
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<?> deleteMessage(@PathVariable("id") String id) {
-        return messageRepository.findById(id).map(message -> {
-            String roomId = message.getRoomId();
-            messageRepository.delete(message);
-            // Broadcast deletion so chat, broadcast, and admin panels update in real-time
-            if (roomId != null) {
-                roomRepository.findById(roomId)
-                        .ifPresent(room -> socketService.broadcastMessageDeleted(id, room.getRoomCode()));
+        Message message = messageStore.findById(id).orElse(null);
+        String roomId;
+        if (message != null) {
+            roomId = message.getRoomId();
+            roomStatsService.runTracked(roomId, () -> {
+                messageStore.delete(message);
+                roomStatsService.messageDeleted(roomId, message.getStatus());
+            });
+            if (!socketService.isMessageChangeStreamed(roomId)) {
+                messageSearchIndex.remove(roomId, id);
             }
-            return ResponseEntity.ok(Map.of("success", true, "message", "Message deleted successfully"));
-        }).orElse(ResponseEntity.notFound().build());
+        } else {
+            // Already moved out of Mongo by retention: tombstone it in the archive instead
+            roomId = messageArchive.deleteMessage(id).orElse(null);
+            if (roomId == null) {
+                return ResponseEntity.notFound().build();
+            }
+        }
+        // Broadcast deletion so chat, broadcast, and admin panels update in real-time.
+        // Mongo deletes reach clients through the change stream in that mode; archive
+        // tombstones never hit Mongo, so they are always emitted here.
+        if (roomId != null && (message == null || !socketService.isMessageChangeStreamed(roomId))) {
+            roomRepository.findById(roomId)
+                    .ifPresent(room -> socketService.broadcastMessageDeleted(id, room.getRoomCode()));
+        }
+        return ResponseEntity.ok(Map.of("success", true, "message", "Message deleted successfully"));
     }
 }
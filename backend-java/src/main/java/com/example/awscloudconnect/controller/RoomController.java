@@ -2,14 +2,25 @@ package com.example.awscloudconnect.controller;
 
 import com.example.awscloudconnect.model.Room;
 import com.example.awscloudconnect.model.User;
+import com.example.awscloudconnect.repository.MongoReadRouter;
 import com.example.awscloudconnect.repository.RoomRepository;
+import com.example.awscloudconnect.repository.RoutingMessageStore;
 import com.example.awscloudconnect.repository.UserRepository;
+import com.example.awscloudconnect.service.AutoModerator;
+import com.example.awscloudconnect.service.BroadcastBatcher;
+import com.example.awscloudconnect.service.RoomStatsService;
 import com.example.awscloudconnect.service.SocketService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +41,24 @@ public class RoomController {
     @Autowired
     private SocketService socketService;
 
+    @Autowired
+    private BroadcastBatcher broadcastBatcher;
+
+    @Autowired
+    private RoomStatsService roomStatsService;
+
+    @Autowired
+    private RoutingMessageStore routingMessageStore;
+
+    @Autowired
+    private MongoReadRouter mongoReadRouter;
+
+    @Autowired
+    private AutoModerator autoModerator;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     @PostMapping("/create")
     public ResponseEntity<?> createRoom(@RequestBody Map<String, String> body) {
         String name = body.get("name");
@@ -58,7 +87,13 @@ public class RoomController {
         Room room = new Room();
         room.setName(name);
         room.setRoomCode(roomCode);
+        room.setBroadcastBatching(Boolean.parseBoolean(body.get("broadcastBatching")));
+        // Ephemeral events can keep their history in memory only
+        room.setMessageStore(Room.STORE_MEMORY.equals(body.get("messageStore")) ? Room.STORE_MEMORY : Room.STORE_MONGO);
         Room savedRoom = roomRepository.save(room);
+        routingMessageStore.register(savedRoom);
+        broadcastBatcher.setEnabled(savedRoom.getRoomCode(), savedRoom.isBroadcastBatching());
+        roomStatsService.roomCreated(savedRoom);
 
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Room created successfully");
@@ -89,7 +124,11 @@ public class RoomController {
         user.setRoom(room.getId());
         user.setStatus("pending");
         user.setRole("user");
-        User savedUser = userRepository.save(user);
+        User savedUser = roomStatsService.callTracked(room.getId(), () -> {
+            User saved = userRepository.save(user);
+            roomStatsService.userCreated(saved);
+            return saved;
+        });
 
         System.out.println("DEBUG: User saved with ID: " + savedUser.getId() + " for room ID: " + room.getId());
 
@@ -109,7 +148,8 @@ public class RoomController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Room not found"));
         }
 
-        List<User> pendingUsers = userRepository.findByRoomAndStatus(room.getId(), "pending");
+        List<User> pendingUsers = mongoReadRouter.find(MongoReadRouter.QueryClass.MODERATION, room.getId(),
+                usersByStatus(room.getId(), "pending"), User.class);
         System.out.println("DEBUG: Found " + pendingUsers.size() + " pending users for room roomID: " + room.getId());
         return ResponseEntity.ok(pendingUsers);
     }
@@ -123,7 +163,8 @@ public class RoomController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Room not found"));
         }
 
-        List<User> allUsers = userRepository.findByRoomAndStatus(room.getId(), "approved");
+        List<User> allUsers = mongoReadRouter.find(MongoReadRouter.QueryClass.LISTS, room.getId(),
+                usersByStatus(room.getId(), "approved"), User.class);
         return ResponseEntity.ok(allUsers);
     }
 
@@ -153,6 +194,119 @@ public class RoomController {
         }).orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "User not found")));
     }
 
+    @GetMapping("/{roomCode}/stats")
+    public ResponseEntity<?> getRoomStats(@PathVariable("roomCode") String roomCode) {
+        Room room = roomRepository.findByRoomCode(roomCode.toUpperCase())
+                .orElse(null);
+
+        if (room == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Room not found"));
+        }
+
+        return ResponseEntity.ok(roomStatsService.stats(room));
+    }
+
+    @GetMapping("/{roomCode}/broadcast-batching")
+    public ResponseEntity<?> getBroadcastBatching(@PathVariable("roomCode") String roomCode) {
+        if (roomRepository.findByRoomCode(roomCode.toUpperCase()).isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Room not found"));
+        }
+        return ResponseEntity.ok(broadcastBatcher.stats(roomCode));
+    }
+
+    @PatchMapping("/{roomCode}/broadcast-batching")
+    public ResponseEntity<?> setBroadcastBatching(@PathVariable("roomCode") String roomCode,
+            @RequestBody Map<String, String> body) {
+        String password = body.get("rootPassword");
+        if (!"NEXUS@ROOT".equals(password != null ? password.trim() : "")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("message", "Authorization Protocol Failed. Invalid root credentials."));
+        }
+
+        Room room = updateRoom(roomCode, Update.update("broadcastBatching", Boolean.parseBoolean(body.get("enabled"))));
+        if (room == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Room not found"));
+        }
+        broadcastBatcher.setEnabled(room.getRoomCode(), room.isBroadcastBatching());
+        return ResponseEntity.ok(broadcastBatcher.stats(roomCode));
+    }
+
+    @GetMapping("/{roomCode}/moderation")
+    public ResponseEntity<?> getModeration(@PathVariable("roomCode") String roomCode) {
+        Room room = roomRepository.findByRoomCode(roomCode.toUpperCase()).orElse(null);
+        if (room == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Room not found"));
+        }
+        return ResponseEntity.ok(moderationRules(room));
+    }
+
+    /** Replaces whichever of enabled, blockedTerms and allowedTerms the body carries. */
+    @PatchMapping("/{roomCode}/moderation")
+    public ResponseEntity<?> setModeration(@PathVariable("roomCode") String roomCode,
+            @RequestBody Map<String, Object> body) {
+        Object password = body.get("rootPassword");
+        if (!"NEXUS@ROOT".equals(password != null ? password.toString().trim() : "")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("message", "Authorization Protocol Failed. Invalid root credentials."));
+        }
+
+        List<String> blocked = terms(body.get("blockedTerms"));
+        List<String> allowed = terms(body.get("allowedTerms"));
+        if ((body.get("blockedTerms") != null && blocked == null) || (body.get("allowedTerms") != null && allowed == null)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Terms must be lists of strings"));
+        }
+
+        // One atomic update, so concurrent edits always end up with distinct versions
+        Update update = new Update().inc("moderationVersion", 1);
+        if (body.containsKey("enabled")) {
+            update.set("autoModeration", Boolean.parseBoolean(String.valueOf(body.get("enabled"))));
+        }
+        if (blocked != null) {
+            update.set("blockedTerms", blocked);
+        }
+        if (allowed != null) {
+            update.set("allowedTerms", allowed);
+        }
+        Room room = updateRoom(roomCode, update);
+        if (room == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Room not found"));
+        }
+        return ResponseEntity.ok(moderationRules(room));
+    }
+
+    /** Applies only the given fields and returns the room as it is afterwards, or null if there is none. */
+    private Room updateRoom(String roomCode, Update update) {
+        return mongoTemplate.findAndModify(Query.query(Criteria.where("roomCode").is(roomCode.toUpperCase())), update,
+                FindAndModifyOptions.options().returnNew(true), Room.class);
+    }
+
+    private List<String> terms(Object value) {
+        if (!(value instanceof List<?> list))
+            return null;
+        List<String> terms = new ArrayList<>(list.size());
+        for (Object term : list) {
+            if (!(term instanceof String text))
+                return null;
+            terms.add(text);
+        }
+        return terms;
+    }
+
+    private Map<String, Object> moderationRules(Room room) {
+        Map<String, Object> rules = new HashMap<>();
+        rules.put("enabled", room.isAutoModeration());
+        rules.put("blockedTerms", room.getBlockedTerms());
+        rules.put("allowedTerms", room.getAllowedTerms());
+        rules.put("version", room.getModerationVersion());
+        // Compiling here also warms this instance before the next message arrives
+        rules.put("compiledPatterns", autoModerator.matcher(room).patternCount());
+        return rules;
+    }
+
+    private Query usersByStatus(String roomId, String status) {
+        return Query.query(Criteria.where("room").is(roomId).and("status").is(status));
+    }
+
     private String generateRoomCode() {
         String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
         StringBuilder code = new StringBuilder();
@@ -0,0 +1,13 @@
+package com.example.awscloudconnect.model;
+
+/**
+ * Compact wire form of a {@link User} for {@code superadmin_live_users}. The
+ * list only ever holds approved, online users of one room, so status, presence
+ * and room are implied.
+ */
+public record LiveUserView(String id, String username, String role) {
+
+    public static LiveUserView of(User user) {
+        return new LiveUserView(user.getId(), user.getUsername(), user.getRole());
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.awscloudconnect.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Compact wire form of a {@link Message} for {@code receive_message},
+ * {@code receive_messages} and {@code load_messages}. Receivers are already in
+ * the room, so the room reference and the embedded sender are left out;
+ * {@code createdAt} is epoch milliseconds.
+ */
+public record MessageView(String id, String senderId, String senderUsername, String content, String status,
+        long createdAt) {
+
+    public static MessageView of(Message message) {
+        String username = message.getSenderUsername();
+        if (username == null && message.getSender() != null) {
+            username = message.getSender().getUsername();
+        }
+        return new MessageView(message.getId(), message.getSenderId(), username, message.getContent(),
+                message.getStatus(), toEpochMilli(message.getCreatedAt()));
+    }
+
+    static long toEpochMilli(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+    }
+}
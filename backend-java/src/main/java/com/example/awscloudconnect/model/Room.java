@@ -5,10 +5,15 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 @Document(collection = "rooms")
 public class Room {
+    public static final String STORE_MONGO = "mongo";
+    public static final String STORE_MEMORY = "memory";
+
     @Id
     private String id;
 
@@ -19,5 +24,17 @@ public class Room {
 
     private String createdBy; // Reference to User ID
 
+    private boolean broadcastBatching = false; // Micro-batch message frames (see BroadcastBatcher)
+
+    private String messageStore = STORE_MONGO; // "mongo" or "memory" (ephemeral, see InMemoryMessageStore)
+
+    private boolean autoModeration = false; // Approve/reject messages against the terms below (see AutoModerator)
+
+    private List<String> blockedTerms = new ArrayList<>();
+
+    private List<String> allowedTerms = new ArrayList<>();
+
+    private long moderationVersion; // Bumped on every rules change so each instance recompiles once
+
     private LocalDateTime createdAt = LocalDateTime.now();
 }
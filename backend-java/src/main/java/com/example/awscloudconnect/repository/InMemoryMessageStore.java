@@ -0,0 +1,406 @@
+package com.example.awscloudconnect.repository;
+
+import com.example.awscloudconnect.model.Message;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-local engine for ephemeral rooms whose history does not need to
+ * outlive the event.
+ *
+ * Each room is an append-only log split into fixed-size chunks. Positions are
+ * assigned in arrival order, which is also {@code createdAt} order, so status
+ * indexes are plain bitsets over positions and the sender index is a sorted
+ * {@code long[]} per sender. Deleted slots are nulled out and dropped from the
+ * indexes. The log holds its own copies: messages are copied on save and on
+ * every read, so callers can mutate (or attach senders to) what they get back.
+ *
+ * Memory is bounded twice: a room never keeps more than
+ * {@code store.memory.max-messages-per-room} messages, and once the estimated
+ * size of all rooms passes {@code store.memory.max-bytes}, the oldest chunk of
+ * the largest room is evicted. Evictions are announced with a
+ * {@link MessagesEvictedEvent} so the search index and room counters forget
+ * those messages too.
+ */
+@Slf4j
+@Component
+public class InMemoryMessageStore implements MessageStore {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    @Value("${store.memory.max-messages-per-room:100000}")
+    private long maxMessagesPerRoom;
+
+    @Value("${store.memory.max-bytes:268435456}")
+    private long maxBytes;
+
+    private final Map<String, RoomLog> rooms = new ConcurrentHashMap<>();
+    private final Map<String, RoomLog> roomByMessageId = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    @Override
+    public Message save(Message message) {
+        if (message.getRoomId() == null)
+            throw new IllegalArgumentException("Message has no room");
+
+        RoomLog roomLog = rooms.computeIfAbsent(message.getRoomId(), RoomLog::new);
+        List<Message> evicted = List.of();
+        synchronized (roomLog) {
+            Long existing = message.getId() != null ? roomLog.positions.get(message.getId()) : null;
+            if (existing != null) {
+                totalBytes.addAndGet(roomLog.replace(existing, copy(message)));
+                return message;
+            }
+            if (message.getId() == null) {
+                message.setId(new ObjectId().toHexString());
+            }
+            roomLog.append(copy(message));
+            roomByMessageId.put(message.getId(), roomLog);
+            totalBytes.addAndGet(estimateBytes(message));
+
+            if (roomLog.next - roomLog.base > maxMessagesPerRoom) {
+                evicted = evictOldestChunk(roomLog);
+            }
+        }
+        publishEvicted(roomLog, evicted);
+        enforceMemoryCap();
+        return message;
+    }
+
+    @Override
+    public Optional<Message> findById(String id) {
+        RoomLog roomLog = roomByMessageId.get(id);
+        if (roomLog == null)
+            return Optional.empty();
+        synchronized (roomLog) {
+            Long position = roomLog.positions.get(id);
+            return position != null ? Optional.ofNullable(copy(roomLog.get(position))) : Optional.empty();
+        }
+    }
+
+    @Override
+    public List<Message> findAllById(List<String> ids) {
+        List<Message> found = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            findById(id).ifPresent(found::add);
+        }
+        return found;
+    }
+
+    @Override
+    public List<Message> findByRoomId(String roomId) {
+        RoomLog roomLog = rooms.get(roomId);
+        if (roomLog == null)
+            return new ArrayList<>();
+        synchronized (roomLog) {
+            List<Message> result = new ArrayList<>((int) (roomLog.next - roomLog.base));
+            for (long pos = roomLog.base; pos < roomLog.next; pos++) {
+                Message message = roomLog.get(pos);
+                if (message != null) {
+                    result.add(copy(message));
+                }
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public List<Message> findByRoomIdAndStatus(String roomId, String status) {
+        RoomLog roomLog = rooms.get(roomId);
+        if (roomLog == null)
+            return new ArrayList<>();
+        synchronized (roomLog) {
+            BitSet bits = roomLog.statusBits(status);
+            List<Message> result = new ArrayList<>(bits.cardinality());
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                result.add(copy(roomLog.get(roomLog.base + i)));
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public List<Message> findPageNewestFirst(String roomId, String status, int page, int size) {
+        RoomLog roomLog = rooms.get(roomId);
+        if (roomLog == null)
+            return new ArrayList<>();
+        synchronized (roomLog) {
+            BitSet bits = roomLog.statusBits(status);
+            long skip = (long) page * size;
+            List<Message> result = new ArrayList<>(size);
+            for (int i = bits.previousSetBit(bits.length() - 1); i >= 0 && result.size() < size; i = bits
+                    .previousSetBit(i - 1)) {
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                result.add(copy(roomLog.get(roomLog.base + i)));
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public long countByRoomIdAndStatus(String roomId, String status) {
+        RoomLog roomLog = rooms.get(roomId);
+        if (roomLog == null)
+            return 0;
+        synchronized (roomLog) {
+            return roomLog.statusBits(status).cardinality();
+        }
+    }
+
+    @Override
+    public void delete(Message message) {
+        RoomLog roomLog = roomByMessageId.remove(message.getId());
+        if (roomLog == null)
+            return;
+        synchronized (roomLog) {
+            Long position = roomLog.positions.get(message.getId());
+            if (position != null) {
+                totalBytes.addAndGet(-roomLog.remove(position));
+            }
+        }
+    }
+
+    @Override
+    public void deleteByRoomId(String roomId) {
+        RoomLog roomLog = rooms.remove(roomId);
+        if (roomLog == null)
+            return;
+        synchronized (roomLog) {
+            roomLog.positions.keySet().forEach(roomByMessageId::remove);
+            totalBytes.addAndGet(-roomLog.bytes);
+        }
+    }
+
+    @Override
+    public void deleteBySenderId(String roomId, String senderId) {
+        RoomLog roomLog = rooms.get(roomId);
+        if (roomLog == null)
+            return;
+        synchronized (roomLog) {
+            LongList positions = roomLog.bySender.remove(senderId);
+            if (positions == null)
+                return;
+            for (int i = 0; i < positions.size; i++) {
+                long pos = positions.values[i];
+                Message message = pos >= roomLog.base ? roomLog.get(pos) : null;
+                if (message != null) {
+                    roomByMessageId.remove(message.getId());
+                    totalBytes.addAndGet(-roomLog.remove(pos));
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isPersistent(String roomId) {
+        return false;
+    }
+
+    private void enforceMemoryCap() {
+        while (totalBytes.get() > maxBytes) {
+            RoomLog largest = null;
+            for (RoomLog roomLog : rooms.values()) {
+                if (largest == null || roomLog.bytes > largest.bytes) {
+                    largest = roomLog;
+                }
+            }
+            if (largest == null)
+                return;
+            List<Message> evicted;
+            synchronized (largest) {
+                if (largest.chunks.isEmpty())
+                    return;
+                evicted = evictOldestChunk(largest);
+            }
+            publishEvicted(largest, evicted);
+        }
+    }
+
+    /** Empties and drops the oldest chunk of a room; the caller holds its lock. */
+    private List<Message> evictOldestChunk(RoomLog roomLog) {
+        Message[] chunk = roomLog.chunks.get(0);
+        List<Message> evicted = new ArrayList<>();
+        for (int i = 0; i < chunk.length; i++) {
+            Message message = chunk[i];
+            if (message != null) {
+                roomByMessageId.remove(message.getId());
+                totalBytes.addAndGet(-roomLog.remove(roomLog.base + i));
+                evicted.add(message);
+            }
+        }
+        roomLog.dropFirstChunk();
+        log.debug("Evicted {} messages from room {}", evicted.size(), roomLog.roomId);
+        return evicted;
+    }
+
+    /** Listeners take their own locks, so this runs after the room lock is released. */
+    private void publishEvicted(RoomLog roomLog, List<Message> evicted) {
+        if (!evicted.isEmpty()) {
+            events.publishEvent(new MessagesEvictedEvent(roomLog.roomId, evicted));
+        }
+    }
+
+    /** Rough heap footprint: strings as UTF-16 plus object and index overhead. */
+    private static long estimateBytes(Message message) {
+        long chars = length(message.getId()) + length(message.getRoomId()) + length(message.getSenderId())
+                + length(message.getSenderUsername()) + length(message.getContent());
+        return 2 * chars + 256;
+    }
+
+    /** Stored fields only; transient sender and room are never kept in the log. */
+    private static Message copy(Message message) {
+        if (message == null)
+            return null;
+        Message copy = new Message();
+        copy.setId(message.getId());
+        copy.setRoomId(message.getRoomId());
+        copy.setSenderId(message.getSenderId());
+        copy.setSenderUsername(message.getSenderUsername());
+        copy.setContent(message.getContent());
+        copy.setStatus(message.getStatus());
+        copy.setCreatedAt(message.getCreatedAt());
+        copy.setUpdatedAt(message.getUpdatedAt());
+        return copy;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private static final class RoomLog {
+        final String roomId;
+        final List<Message[]> chunks = new ArrayList<>();
+        final Map<String, Long> positions = new HashMap<>();
+        final Map<String, LongList> bySender = new HashMap<>();
+        BitSet pending = new BitSet();
+        BitSet approved = new BitSet();
+        BitSet other = new BitSet();
+        long base; // absolute position of chunks.get(0)[0]
+        long next; // absolute position of the next append
+        long bytes;
+
+        RoomLog(String roomId) {
+            this.roomId = roomId;
+        }
+
+        Message get(long pos) {
+            long rel = pos - base;
+            if (rel < 0 || pos >= next)
+                return null;
+            return chunks.get((int) (rel / CHUNK_SIZE))[(int) (rel % CHUNK_SIZE)];
+        }
+
+        void append(Message message) {
+            long rel = next - base;
+            if (rel / CHUNK_SIZE >= chunks.size()) {
+                chunks.add(new Message[CHUNK_SIZE]);
+            }
+            chunks.get((int) (rel / CHUNK_SIZE))[(int) (rel % CHUNK_SIZE)] = message;
+            positions.put(message.getId(), next);
+            statusBits(message.getStatus()).set((int) rel);
+            if (message.getSenderId() != null) {
+                bySender.computeIfAbsent(message.getSenderId(), s -> new LongList()).add(next);
+            }
+            bytes += estimateBytes(message);
+            next++;
+        }
+
+        /** Swaps a slot's message and returns the change in accounted bytes. */
+        long replace(long pos, Message message) {
+            Message current = get(pos);
+            if (current == null)
+                return 0;
+            long rel = pos - base;
+            statusBits(current.getStatus()).clear((int) rel);
+            statusBits(message.getStatus()).set((int) rel);
+            chunks.get((int) (rel / CHUNK_SIZE))[(int) (rel % CHUNK_SIZE)] = message;
+            long delta = estimateBytes(message) - estimateBytes(current);
+            bytes += delta;
+            return delta;
+        }
+
+        /** Clears a slot and returns the bytes it accounted for. */
+        long remove(long pos) {
+            Message current = get(pos);
+            if (current == null)
+                return 0;
+            long rel = pos - base;
+            chunks.get((int) (rel / CHUNK_SIZE))[(int) (rel % CHUNK_SIZE)] = null;
+            statusBits(current.getStatus()).clear((int) rel);
+            positions.remove(current.getId());
+            long freed = estimateBytes(current);
+            bytes -= freed;
+            return freed;
+        }
+
+        /** Drops the (already emptied) head chunk and rebases the bitsets. */
+        void dropFirstChunk() {
+            chunks.remove(0);
+            base += CHUNK_SIZE;
+            next = Math.max(next, base);
+            pending = shift(pending);
+            approved = shift(approved);
+            other = shift(other);
+            bySender.values().removeIf(list -> {
+                list.dropBelow(base);
+                return list.size == 0;
+            });
+        }
+
+        BitSet statusBits(String status) {
+            if ("pending".equals(status))
+                return pending;
+            if ("approved".equals(status))
+                return approved;
+            return other;
+        }
+
+        private static BitSet shift(BitSet bits) {
+            return bits.length() > CHUNK_SIZE ? bits.get(CHUNK_SIZE, bits.length()) : new BitSet();
+        }
+    }
+
+    /** Sorted, growable primitive list of roomLog positions. */
+    private static final class LongList {
+        long[] values = new long[4];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void dropBelow(long min) {
+            int from = 0;
+            while (from < size && values[from] < min) {
+                from++;
+            }
+            if (from > 0) {
+                System.arraycopy(values, from, values, 0, size - from);
+                size -= from;
+            }
+        }
+    }
+}
@@ -1,14 +1,27 @@
 package com.example.awscloudconnect.repository;
 
 import com.example.awscloudconnect.model.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface MessageRepository extends MongoRepository<Message, String> {
     List<Message> findByRoomIdOrderByCreatedAtAsc(String roomId);
 
+    List<Message> findByRoomIdAndStatusNotOrderByCreatedAtAsc(String roomId, String status, Pageable pageable);
+
     List<Message> findByRoomIdAndStatusOrderByCreatedAtAsc(String roomId, String status);
 
+    Stream<Message> streamAllByOrderByIdAsc();
+
+    long countByRoomId(String roomId);
+
+    long countByRoomIdAndStatus(String roomId, String status);
+
+    long countByRoomIdAndStatusNotAndCreatedAtBefore(String roomId, String status, LocalDateTime cutoff);
+
     void deleteByRoomId(String roomId);
 
     void deleteBySenderId(String senderId);
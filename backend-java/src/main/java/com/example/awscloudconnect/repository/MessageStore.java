@@ -0,0 +1,48 @@
+package com.example.awscloudconnect.repository;
+
+import com.example.awscloudconnect.model.Message;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage engine for chat messages. {@link RoutingMessageStore} is the primary
+ * bean and picks {@link MongoMessageStore} or {@link InMemoryMessageStore} per
+ * room, based on the engine chosen when the room was created.
+ */
+public interface MessageStore {
+
+    Message save(Message message);
+
+    /**
+     * Persists a moderator's change to the message's status. Engines that serve
+     * history from replicas make sure later reads of the room observe it.
+     */
+    default Message saveModerated(Message message) {
+        return save(message);
+    }
+
+    Optional<Message> findById(String id);
+
+    List<Message> findAllById(List<String> ids);
+
+    /** All messages of a room, oldest first. */
+    List<Message> findByRoomId(String roomId);
+
+    /** Messages of a room with the given status, oldest first. */
+    List<Message> findByRoomIdAndStatus(String roomId, String status);
+
+    /** One page of a room's messages with the given status, newest first. */
+    List<Message> findPageNewestFirst(String roomId, String status, int page, int size);
+
+    long countByRoomIdAndStatus(String roomId, String status);
+
+    void delete(Message message);
+
+    void deleteByRoomId(String roomId);
+
+    void deleteBySenderId(String roomId, String senderId);
+
+    /** Whether messages of this room outlive the process (and show up in change streams). */
+    boolean isPersistent(String roomId);
+}
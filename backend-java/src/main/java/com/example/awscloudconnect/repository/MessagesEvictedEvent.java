@@ -0,0 +1,9 @@
+package com.example.awscloudconnect.repository;
+
+import com.example.awscloudconnect.model.Message;
+
+import java.util.List;
+
+/** Published by {@link InMemoryMessageStore} when its caps drop messages of a room. */
+public record MessagesEvictedEvent(String roomId, List<Message> messages) {
+}
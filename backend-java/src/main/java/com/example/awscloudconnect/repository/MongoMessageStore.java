@@ -0,0 +1,104 @@
+package com.example.awscloudconnect.repository;
+
+import com.example.awscloudconnect.model.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The default engine: messages live in the {@code messages} collection.
+ * History reads go through {@link MongoReadRouter}; pending-message reads are
+ * moderation reads and use its moderation routing.
+ */
+@Component
+public class MongoMessageStore implements MessageStore {
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MongoReadRouter mongoReadRouter;
+
+    @Override
+    public Message save(Message message) {
+        return messageRepository.save(message);
+    }
+
+    @Override
+    public Message saveModerated(Message message) {
+        // A $set rather than a replace, so change streams report the status change without pre-images
+        message.setUpdatedAt(LocalDateTime.now());
+        Update update = Update.update("status", message.getStatus()).set("updatedAt", message.getUpdatedAt());
+        mongoReadRouter.moderationWrite(message.getRoomId(),
+                ops -> ops.updateFirst(Query.query(Criteria.where("id").is(message.getId())), update, Message.class));
+        return message;
+    }
+
+    @Override
+    public Optional<Message> findById(String id) {
+        return messageRepository.findById(id);
+    }
+
+    @Override
+    public List<Message> findAllById(List<String> ids) {
+        return messageRepository.findAllById(ids);
+    }
+
+    @Override
+    public List<Message> findByRoomId(String roomId) {
+        Query query = Query.query(Criteria.where("roomId").is(roomId)).with(Sort.by("createdAt").ascending());
+        return mongoReadRouter.find(MongoReadRouter.QueryClass.HISTORY, roomId, query, Message.class);
+    }
+
+    @Override
+    public List<Message> findByRoomIdAndStatus(String roomId, String status) {
+        Query query = Query.query(Criteria.where("roomId").is(roomId).and("status").is(status))
+                .with(Sort.by("createdAt").ascending());
+        return mongoReadRouter.find(queryClass(status), roomId, query, Message.class);
+    }
+
+    @Override
+    public List<Message> findPageNewestFirst(String roomId, String status, int page, int size) {
+        Query query = Query.query(Criteria.where("roomId").is(roomId).and("status").is(status))
+                .with(Sort.by("createdAt").descending())
+                .skip((long) page * size)
+                .limit(size);
+        return mongoReadRouter.find(queryClass(status), roomId, query, Message.class);
+    }
+
+    @Override
+    public long countByRoomIdAndStatus(String roomId, String status) {
+        return messageRepository.countByRoomIdAndStatus(roomId, status);
+    }
+
+    @Override
+    public void delete(Message message) {
+        messageRepository.delete(message);
+    }
+
+    @Override
+    public void deleteByRoomId(String roomId) {
+        messageRepository.deleteByRoomId(roomId);
+    }
+
+    @Override
+    public void deleteBySenderId(String roomId, String senderId) {
+        messageRepository.deleteBySenderId(senderId);
+    }
+
+    @Override
+    public boolean isPersistent(String roomId) {
+        return true;
+    }
+
+    private static MongoReadRouter.QueryClass queryClass(String status) {
+        return "pending".equals(status) ? MongoReadRouter.QueryClass.MODERATION : MongoReadRouter.QueryClass.HISTORY;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.awscloudconnect.repository;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Routes reads to replica-set members per query class, configured with
+ * {@code mongo.read.*}. Bulk history and list reads default to
+ * {@code secondaryPreferred} within {@code mongo.read.max-staleness-seconds};
+ * moderation reads default to the primary.
+ *
+ * Moderation writes (approvals) run in a causally consistent session whose
+ * cluster and operation time are remembered per room. Routed reads for that
+ * room start a session advanced to that point, so a secondary only answers
+ * once it has replicated the approval: approve-then-read stays correct even
+ * when history is served from secondaries.
+ */
+@Slf4j
+@Component
+public class MongoReadRouter {
+
+    /** Server-enforced lower bound for maxStalenessSeconds. */
+    private static final long MIN_STALENESS_SECONDS = 90;
+
+    public enum QueryClass {
+        /** load_messages, load_broadcast_messages, /approved history. */
+        HISTORY,
+        /** User lists such as /all-users. */
+        LISTS,
+        /** Pending users and messages, reads inside approve flows. */
+        MODERATION
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoClient mongoClient;
+
+    @Value("${mongo.read.history:secondaryPreferred}")
+    private String historyMode;
+
+    @Value("${mongo.read.lists:secondaryPreferred}")
+    private String listsMode;
+
+    @Value("${mongo.read.moderation:primary}")
+    private String moderationMode;
+
+    @Value("${mongo.read.max-staleness-seconds:90}")
+    private long maxStalenessSeconds;
+
+    private final Map<QueryClass, ReadPreference> preferences = new EnumMap<>(QueryClass.class);
+    private final Map<String, CausalPoint> lastModerationWrite = new ConcurrentHashMap<>();
+
+    private record CausalPoint(BsonDocument clusterTime, BsonTimestamp operationTime) {
+        CausalPoint later(CausalPoint other) {
+            return other.operationTime.compareTo(operationTime) > 0 ? other : this;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (maxStalenessSeconds > 0 && maxStalenessSeconds < MIN_STALENESS_SECONDS) {
+            log.warn("mongo.read.max-staleness-seconds={} is below the server minimum; using {}",
+                    maxStalenessSeconds, MIN_STALENESS_SECONDS);
+            maxStalenessSeconds = MIN_STALENESS_SECONDS;
+        }
+        preferences.put(QueryClass.HISTORY, preference(historyMode));
+        preferences.put(QueryClass.LISTS, preference(listsMode));
+        preferences.put(QueryClass.MODERATION, preference(moderationMode));
+        log.info("Mongo read routing: {}", preferences);
+    }
+
+    /** Runs a query of the given class against the configured members. */
+    public <T> List<T> find(QueryClass queryClass, String roomId, Query query, Class<T> type) {
+        ReadPreference preference = preferences.get(queryClass);
+        query.withReadPreference(preference);
+
+        CausalPoint point = roomId != null ? lastModerationWrite.get(roomId) : null;
+        if (point == null || ReadPreference.primary().equals(preference)) {
+            return mongoTemplate.find(query, type);
+        }
+        try (ClientSession session = startCausalSession()) {
+            session.advanceClusterTime(point.clusterTime());
+            session.advanceOperationTime(point.operationTime());
+            return mongoTemplate.withSession(session).find(query, type);
+        }
+    }
+
+    /**
+     * Runs a moderation write in a causally consistent session and remembers
+     * where it landed, so later routed reads for the room observe it.
+     */
+    public <T> T moderationWrite(String roomId, Function<MongoOperations, T> write) {
+        try (ClientSession session = startCausalSession()) {
+            T result = write.apply(mongoTemplate.withSession(session));
+            if (roomId != null && session.getOperationTime() != null) {
+                CausalPoint point = new CausalPoint(session.getClusterTime(), session.getOperationTime());
+                lastModerationWrite.merge(roomId, point, CausalPoint::later);
+            }
+            return result;
+        }
+    }
+
+    public void forgetRoom(String roomId) {
+        lastModerationWrite.remove(roomId);
+    }
+
+    private ClientSession startCausalSession() {
+        return mongoClient.startSession(ClientSessionOptions.builder().causallyConsistent(true).build());
+    }
+
+    private ReadPreference preference(String mode) {
+        ReadPreference base = ReadPreference.valueOf(mode);
+        if (ReadPreference.primary().equals(base) || maxStalenessSeconds <= 0)
+            return base;
+        return ReadPreference.valueOf(mode, List.of(), maxStalenessSeconds, TimeUnit.SECONDS);
+    }
+}
@@ -2,8 +2,11 @@ package com.example.awscloudconnect.repository;
 
 import com.example.awscloudconnect.model.Room;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import java.util.List;
 import java.util.Optional;
 
 public interface RoomRepository extends MongoRepository<Room, String> {
     Optional<Room> findByRoomCode(String roomCode);
+
+    List<Room> findByBroadcastBatchingTrue();
 }
@@ -0,0 +1,115 @@
+package com.example.awscloudconnect.repository;
+
+import com.example.awscloudconnect.model.Message;
+import com.example.awscloudconnect.model.Room;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends each call to the engine the room was created with
+ * ({@link Room#getMessageStore()}). Rooms without a setting use Mongo.
+ */
+@Primary
+@Component
+public class RoutingMessageStore implements MessageStore {
+
+    @Autowired
+    private MongoMessageStore mongoMessageStore;
+
+    @Autowired
+    private InMemoryMessageStore inMemoryMessageStore;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    private final Map<String, MessageStore> engineByRoom = new ConcurrentHashMap<>();
+
+    @Override
+    public Message save(Message message) {
+        return engineFor(message.getRoomId()).save(message);
+    }
+
+    @Override
+    public Message saveModerated(Message message) {
+        return engineFor(message.getRoomId()).saveModerated(message);
+    }
+
+    @Override
+    public Optional<Message> findById(String id) {
+        Optional<Message> inMemory = inMemoryMessageStore.findById(id);
+        return inMemory.isPresent() ? inMemory : mongoMessageStore.findById(id);
+    }
+
+    @Override
+    public List<Message> findAllById(List<String> ids) {
+        List<Message> found = new ArrayList<>(inMemoryMessageStore.findAllById(ids));
+        if (found.size() < ids.size()) {
+            found.addAll(mongoMessageStore.findAllById(ids));
+        }
+        return found;
+    }
+
+    @Override
+    public List<Message> findByRoomId(String roomId) {
+        return engineFor(roomId).findByRoomId(roomId);
+    }
+
+    @Override
+    public List<Message> findByRoomIdAndStatus(String roomId, String status) {
+        return engineFor(roomId).findByRoomIdAndStatus(roomId, status);
+    }
+
+    @Override
+    public List<Message> findPageNewestFirst(String roomId, String status, int page, int size) {
+        return engineFor(roomId).findPageNewestFirst(roomId, status, page, size);
+    }
+
+    @Override
+    public long countByRoomIdAndStatus(String roomId, String status) {
+        return engineFor(roomId).countByRoomIdAndStatus(roomId, status);
+    }
+
+    @Override
+    public void delete(Message message) {
+        engineFor(message.getRoomId()).delete(message);
+    }
+
+    @Override
+    public void deleteByRoomId(String roomId) {
+        engineFor(roomId).deleteByRoomId(roomId);
+        engineByRoom.remove(roomId);
+    }
+
+    @Override
+    public void deleteBySenderId(String roomId, String senderId) {
+        engineFor(roomId).deleteBySenderId(roomId, senderId);
+    }
+
+    @Override
+    public boolean isPersistent(String roomId) {
+        return engineFor(roomId).isPersistent(roomId);
+    }
+
+    /** Records the engine of a freshly created room so the first message needs no lookup. */
+    public void register(Room room) {
+        engineByRoom.put(room.getId(), select(room));
+    }
+
+    private MessageStore engineFor(String roomId) {
+        if (roomId == null)
+            return mongoMessageStore;
+        return engineByRoom.computeIfAbsent(roomId,
+                id -> roomRepository.findById(id).map(this::select).orElse(mongoMessageStore));
+    }
+
+    private MessageStore select(Room room) {
+        return Room.STORE_MEMORY.equals(room.getMessageStore()) ? inMemoryMessageStore : mongoMessageStore;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.awscloudconnect.repository;
 
 import com.example.awscloudconnect.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Update;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +14,12 @@ public interface UserRepository extends MongoRepository<User, String> {
     List<User> findByRoomAndStatusAndOnline(String room, String status, boolean online);
 
     List<User> findByRoom(String room);
+
+    long countByRoomAndStatus(String room, String status);
+
+    long countByRoomAndOnline(String room, boolean online);
+
+    /** Presence as a $set, so change streams see exactly which fields moved. */
+    @Update("{ '$set' : { 'isOnline' : ?1, 'socketId' : ?2 } }")
+    long findAndSetPresenceById(String id, boolean online, String socketId);
 }
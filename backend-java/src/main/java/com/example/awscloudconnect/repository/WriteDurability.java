@@ -0,0 +1,114 @@
+package com.example.awscloudconnect.repository;
+
+import com.example.awscloudconnect.model.Message;
+import com.mongodb.WriteConcern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoAction;
+import org.springframework.data.mongodb.core.MongoActionOperation;
+import org.springframework.data.mongodb.core.WriteConcernResolver;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Picks the write concern for every Mongo write from the operation class it
+ * belongs to, configured with {@code mongo.write.*}.
+ *
+ * Callers tag a write with {@link #run} or {@link #call}; the tag is held in a
+ * thread-local for the duration of the call, so repositories need no changes.
+ * Untagged message inserts count as {@link OperationClass#MESSAGE_INSERT} and
+ * everything else as {@link OperationClass#LIFECYCLE}.
+ *
+ * Tiers, from cheapest to most durable: {@code unacknowledged}, {@code w1},
+ * {@code w1-journaled}, {@code majority}, {@code majority-journaled}.
+ */
+@Slf4j
+@Component
+public class WriteDurability implements WriteConcernResolver {
+
+    public enum OperationClass {
+        MESSAGE_INSERT,
+        PRESENCE,
+        APPROVAL,
+        LIFECYCLE
+    }
+
+    private static final ThreadLocal<OperationClass> CURRENT = new ThreadLocal<>();
+
+    @Value("${mongo.write.message-insert:w1}")
+    private String messageInsertTier;
+
+    @Value("${mongo.write.presence:w1}")
+    private String presenceTier;
+
+    @Value("${mongo.write.approval:majority-journaled}")
+    private String approvalTier;
+
+    @Value("${mongo.write.lifecycle:majority-journaled}")
+    private String lifecycleTier;
+
+    @Value("${mongo.write.wtimeout-ms:5000}")
+    private long wtimeoutMs;
+
+    private final Map<OperationClass, WriteConcern> concerns = new EnumMap<>(OperationClass.class);
+
+    @PostConstruct
+    public void init() {
+        concerns.put(OperationClass.MESSAGE_INSERT, tier(messageInsertTier));
+        concerns.put(OperationClass.PRESENCE, tier(presenceTier));
+        concerns.put(OperationClass.APPROVAL, tier(approvalTier));
+        concerns.put(OperationClass.LIFECYCLE, tier(lifecycleTier));
+        if (!concerns.get(OperationClass.APPROVAL).isAcknowledged())
+            throw new IllegalArgumentException("mongo.write.approval must be acknowledged; approvals run in causal sessions");
+        log.info("Mongo write tiers: {}", concerns);
+    }
+
+    public static void run(OperationClass operationClass, Runnable write) {
+        call(operationClass, () -> {
+            write.run();
+            return null;
+        });
+    }
+
+    public static <T> T call(OperationClass operationClass, Supplier<T> write) {
+        OperationClass previous = CURRENT.get();
+        CURRENT.set(operationClass);
+        try {
+            return write.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    @Override
+    public WriteConcern resolve(MongoAction action) {
+        OperationClass operationClass = CURRENT.get();
+        if (operationClass == null) {
+            boolean messageInsert = Message.class.equals(action.getEntityType())
+                    && action.getMongoActionOperation() == MongoActionOperation.INSERT;
+            operationClass = messageInsert ? OperationClass.MESSAGE_INSERT : OperationClass.LIFECYCLE;
+        }
+        return concerns.get(operationClass);
+    }
+
+    private WriteConcern tier(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "unacknowledged" -> WriteConcern.UNACKNOWLEDGED;
+            case "w1" -> WriteConcern.W1;
+            case "w1-journaled" -> WriteConcern.W1.withJournal(true);
+            case "majority" -> WriteConcern.MAJORITY.withWTimeout(wtimeoutMs, TimeUnit.MILLISECONDS);
+            case "majority-journaled" -> WriteConcern.MAJORITY.withJournal(true)
+                    .withWTimeout(wtimeoutMs, TimeUnit.MILLISECONDS);
+            default -> throw new IllegalArgumentException("Unknown write tier: " + name);
+        };
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.awscloudconnect.service;
+
+import com.example.awscloudconnect.model.Room;
+import com.example.awscloudconnect.service.TermMatcher.Verdict;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inline moderation stage for {@code send_message}. Rooms with
+ * {@code autoModeration} on get clean messages approved and blocked ones
+ * rejected on arrival; only ambiguous messages wait for a moderator.
+ *
+ * Each room's terms are compiled into a {@link TermMatcher} once per
+ * {@code moderationVersion}. The version travels with the room document that
+ * {@code send_message} already loads, so rule changes take effect on every
+ * instance with the next message, without recompiling per message.
+ */
+@Slf4j
+@Component
+public class AutoModerator {
+
+    private record Compiled(long version, TermMatcher matcher) {
+    }
+
+    private final Map<String, Compiled> matchers = new ConcurrentHashMap<>();
+
+    public Verdict review(Room room, String content) {
+        if (!room.isAutoModeration())
+            return Verdict.PENDING;
+        return matcher(room).classify(content);
+    }
+
+    public TermMatcher matcher(Room room) {
+        Compiled compiled = matchers.get(room.getId());
+        if (compiled != null && compiled.version() == room.getModerationVersion())
+            return compiled.matcher();
+
+        return matchers.compute(room.getId(), (id, existing) -> {
+            if (existing != null && existing.version() == room.getModerationVersion())
+                return existing;
+            TermMatcher matcher = hasTerms(room)
+                    ? TermMatcher.compile(room.getBlockedTerms(), room.getAllowedTerms())
+                    : TermMatcher.empty();
+            log.info("Compiled {} moderation terms for room {} (version {})", matcher.patternCount(),
+                    room.getRoomCode(), room.getModerationVersion());
+            return new Compiled(room.getModerationVersion(), matcher);
+        }).matcher();
+    }
+
+    private static boolean hasTerms(Room room) {
+        return (room.getBlockedTerms() != null && !room.getBlockedTerms().isEmpty())
+                || (room.getAllowedTerms() != null && !room.getAllowedTerms().isEmpty());
+    }
+
+    public void forgetRoom(String roomId) {
+        matchers.remove(roomId);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.awscloudconnect.service;
+
+import com.corundumstudio.socketio.SocketIOServer;
+import com.example.awscloudconnect.model.Message;
+import com.example.awscloudconnect.model.MessageView;
+import com.example.awscloudconnect.model.Room;
+import com.example.awscloudconnect.repository.RoomRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in micro-batching of message frames for rooms with large audiences.
+ *
+ * For rooms that enable it, {@code broadcast_message} and
+ * {@code receive_message} are not sent one frame per message. Messages are
+ * collected for {@code broadcast.batch-window-ms} after the first one arrives
+ * and then sent as a single {@code broadcast_messages} / {@code receive_messages}
+ * array, in arrival order.
+ *
+ * Moderation events ({@code new_pending_message}, {@code message_approved})
+ * go to the dashboards' {@code admin_<code>} room and are not batched, so the
+ * frame counts here are what the room's audience actually receives.
+ *
+ * Deletes go through the batcher as well: a deleted message is dropped from
+ * the pending batch and {@code message_deleted} is sent under the same lock
+ * as the batch frames, so a later frame can never bring it back.
+ */
+@Slf4j
+@Component
+public class BroadcastBatcher {
+
+    @Autowired
+    private SocketIOServer server;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Value("${broadcast.batch-window-ms:25}")
+    private long windowMs;
+
+    private final Set<String> enabledRooms = ConcurrentHashMap.newKeySet();
+    private final Map<String, RoomBatch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "broadcast-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadEnabledRooms() {
+        for (Room room : roomRepository.findByBroadcastBatchingTrue()) {
+            enabledRooms.add(room.getRoomCode().toUpperCase());
+        }
+        log.info("Broadcast batching enabled for {} rooms ({} ms window)", enabledRooms.size(), windowMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+    }
+
+    public boolean isEnabled(String roomCode) {
+        return enabledRooms.contains(roomCode.toUpperCase());
+    }
+
+    public void setEnabled(String roomCode, boolean enabled) {
+        String formatted = roomCode.toUpperCase();
+        if (enabled) {
+            enabledRooms.add(formatted);
+        } else {
+            enabledRooms.remove(formatted);
+            RoomBatch batch = batches.get(formatted);
+            if (batch != null) {
+                flush(formatted, batch);
+            }
+        }
+    }
+
+    /** Drops a deleted room's batch and counters; anything still pending had no one left to see it. */
+    public void forgetRoom(String roomCode) {
+        String formatted = roomCode.toUpperCase();
+        enabledRooms.remove(formatted);
+        batches.remove(formatted);
+    }
+
+    /** Queues a message for {@code broadcast_<code>}. */
+    public void enqueueBroadcast(String roomCode, Object message) {
+        enqueue(roomCode.toUpperCase(), message, true);
+    }
+
+    /** Queues a message for {@code room_<code>}. */
+    public void enqueueReceive(String roomCode, Object message) {
+        enqueue(roomCode.toUpperCase(), message, false);
+    }
+
+    /** Drops the message from the room's pending batch and emits {@code message_deleted} in order with the frames. */
+    public void deleteMessage(String roomCode, String messageId) {
+        String formatted = roomCode.toUpperCase();
+        RoomBatch batch = batches.get(formatted);
+        if (batch == null) {
+            sendDeleted(formatted, messageId);
+            return;
+        }
+        synchronized (batch) {
+            batch.broadcast.removeIf(message -> messageId.equals(idOf(message)));
+            batch.receive.removeIf(message -> messageId.equals(idOf(message)));
+            sendDeleted(formatted, messageId);
+        }
+    }
+
+    /** Batching counters for a room; frames saved is messages minus frames actually sent. */
+    public Map<String, Object> stats(String roomCode) {
+        String formatted = roomCode.toUpperCase();
+        RoomBatch batch = batches.get(formatted);
+        long messages = batch != null ? batch.messages.get() : 0;
+        long frames = batch != null ? batch.frames.get() : 0;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabledRooms.contains(formatted));
+        stats.put("windowMs", windowMs);
+        stats.put("messages", messages);
+        stats.put("frames", frames);
+        stats.put("framesSaved", messages - frames);
+        return stats;
+    }
+
+    private void enqueue(String roomCode, Object message, boolean broadcast) {
+        RoomBatch batch = batches.computeIfAbsent(roomCode, code -> new RoomBatch());
+        synchronized (batch) {
+            (broadcast ? batch.broadcast : batch.receive).add(message);
+            if (!batch.scheduled) {
+                batch.scheduled = true;
+                flusher.schedule(() -> flush(roomCode, batch), windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void flush(String roomCode, RoomBatch batch) {
+        // Sent under the lock so deletes (see deleteMessage) are ordered with the frames
+        synchronized (batch) {
+            List<Object> broadcast = batch.broadcast;
+            List<Object> receive = batch.receive;
+            batch.broadcast = new ArrayList<>();
+            batch.receive = new ArrayList<>();
+            batch.scheduled = false;
+
+            if (!broadcast.isEmpty()) {
+                server.getRoomOperations("broadcast_" + roomCode).sendEvent("broadcast_messages", broadcast);
+                batch.messages.addAndGet(broadcast.size());
+                batch.frames.incrementAndGet();
+            }
+            if (!receive.isEmpty()) {
+                server.getRoomOperations("room_" + roomCode).sendEvent("receive_messages", receive);
+                batch.messages.addAndGet(receive.size());
+                batch.frames.incrementAndGet();
+            }
+        }
+    }
+
+    private void sendDeleted(String roomCode, String messageId) {
+        server.getRoomOperations("room_" + roomCode).sendEvent("message_deleted", messageId);
+        server.getRoomOperations("broadcast_" + roomCode).sendEvent("message_deleted", messageId);
+    }
+
+    private static String idOf(Object message) {
+        if (message instanceof Message m)
+            return m.getId();
+        if (message instanceof MessageView view)
+            return view.id();
+        return null;
+    }
+
+    private static final class RoomBatch {
+        List<Object> broadcast = new ArrayList<>();
+        List<Object> receive = new ArrayList<>();
+        boolean scheduled;
+        final AtomicLong messages = new AtomicLong();
+        final AtomicLong frames = new AtomicLong();
+    }
+}
@@ -0,0 +1,483 @@
+package com.example.awscloudconnect.service;
+
+import com.example.awscloudconnect.model.Message;
+import com.example.awscloudconnect.model.Room;
+import com.example.awscloudconnect.model.User;
+import com.example.awscloudconnect.repository.RoomRepository;
+import com.example.awscloudconnect.repository.UserRepository;
+import com.example.awscloudconnect.service.MessageSearchIndex.Indexed;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import com.mongodb.client.ChangeStreamIterable;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.mongodb.client.model.Filters.eq;
+
+/**
+ * Turns Mongo change streams on {@code messages}, {@code users} and
+ * {@code rooms} into socket notifications, so every instance (and direct
+ * database edits) reach clients without synchronous emits in the request path.
+ *
+ * Resume tokens are persisted per collection in {@code change_stream_tokens}.
+ * They are saved at most once per {@code events.change-streams.token-flush-ms},
+ * so a restart may replay the last few events: delivery is at-least-once.
+ *
+ * Status and presence changes are detected from the update description, so
+ * they do not depend on pre-images; the application writes them as
+ * {@code $set} updates. Pre-images are enabled on startup where the server
+ * allows it (MongoDB 6+) and used when present. Without them, deletes are
+ * attributed to their room from local state: the search index for messages
+ * and a map of current users, filled at startup and from inserts and updates.
+ * A delete that cannot be attributed is dropped rather than sent to every
+ * client. Documents flagged {@code archived} or {@code bulkDelete} right
+ * before their delete produce no per-document event.
+ *
+ * Every instance also applies the changes to its {@link MessageSearchIndex}
+ * and {@link RoomStatsService}, so search and counters agree across instances.
+ *
+ * The bean always exists and checks {@code events.change-streams.enabled} when
+ * the application is ready, not through a bean condition: fast-start (AOT)
+ * images fix bean conditions at build time, while {@link SocketService} reads
+ * the same flag at runtime.
+ */
+@Slf4j
+@Component
+public class ChangeStreamEventPublisher {
+
+    /** Set by the retention sweep right before it deletes messages it has archived. */
+    public static final String ARCHIVED_FIELD = "archived";
+
+    /**
+     * Set on users and messages right before a room delete or kick removes them
+     * in bulk; clients hear about those through the one room-level event.
+     */
+    public static final String BULK_DELETE_FIELD = "bulkDelete";
+
+    private static final String TOKEN_COLLECTION = "change_stream_tokens";
+    private static final List<String> WATCHED = List.of("messages", "users", "rooms");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SocketService socketService;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BroadcastBatcher broadcastBatcher;
+
+    @Autowired
+    private MessageSearchIndex messageSearchIndex;
+
+    @Autowired
+    private RoomStatsService roomStatsService;
+
+    @Value("${events.change-streams.enabled:false}")
+    private boolean enabled;
+
+    @Value("${events.change-streams.token-flush-ms:1000}")
+    private long tokenFlushMs;
+
+    private static final int MAX_SILENT_DELETES = 100_000;
+
+    private final Map<String, String> roomCodes = new ConcurrentHashMap<>();
+
+    // Current members by user ID, so deletes can be attributed without pre-images
+    private final Map<String, User> knownUsers = new ConcurrentHashMap<>();
+
+    // Each only touched by its collection's watcher thread
+    private final Set<String> silentMessageDeletes = boundedSet();
+    private final Set<String> silentUserDeletes = boundedSet();
+    private final ExecutorService executor = Executors.newFixedThreadPool(WATCHED.size(), r -> {
+        Thread thread = new Thread(r, "change-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = true;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled)
+            return;
+        userRepository.findAll().forEach(this::remember);
+        for (String collection : WATCHED) {
+            enablePreImages(collection);
+            executor.submit(() -> watch(collection));
+        }
+        log.info("Change-stream event propagation started for {}", WATCHED);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void enablePreImages(String collection) {
+        try {
+            mongoTemplate.getDb().runCommand(new Document("collMod", collection)
+                    .append("changeStreamPreAndPostImages", new Document("enabled", true)));
+        } catch (MongoCommandException e) {
+            log.warn("Pre-images unavailable for {} ({}); deletes are attributed from local state", collection,
+                    e.getErrorMessage());
+        }
+    }
+
+    /** Bounded in case a flagged document is never deleted. */
+    private static Set<String> boundedSet() {
+        return Collections.newSetFromMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > MAX_SILENT_DELETES;
+            }
+        });
+    }
+
+    private void watch(String collection) {
+        while (running) {
+            BsonDocument token = loadToken(collection);
+            ChangeStreamIterable<Document> stream = mongoTemplate.getCollection(collection).watch()
+                    .fullDocument(FullDocument.UPDATE_LOOKUP)
+                    .fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE)
+                    .maxAwaitTime(1, TimeUnit.SECONDS);
+            if (token != null) {
+                stream = stream.resumeAfter(token);
+            }
+
+            BsonDocument pending = null;
+            long lastFlush = System.currentTimeMillis();
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+                while (running) {
+                    ChangeStreamDocument<Document> event = cursor.tryNext();
+                    if (event != null) {
+                        dispatch(collection, event);
+                        pending = event.getResumeToken();
+                    }
+                    if (pending != null && System.currentTimeMillis() - lastFlush >= tokenFlushMs) {
+                        saveToken(collection, pending);
+                        pending = null;
+                        lastFlush = System.currentTimeMillis();
+                    }
+                }
+                if (pending != null) {
+                    saveToken(collection, pending);
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == 286) { // ChangeStreamHistoryLost: token fell off the oplog
+                    log.warn("Resume token for {} expired; restarting from now", collection);
+                    mongoTemplate.getCollection(TOKEN_COLLECTION).deleteOne(eq("_id", collection));
+                } else {
+                    log.error("Change stream on {} failed: {}", collection, e.getMessage());
+                    sleepBeforeRetry();
+                }
+            } catch (RuntimeException e) {
+                if (!running)
+                    return;
+                log.error("Change stream on {} failed: {}", collection, e.getMessage());
+                sleepBeforeRetry();
+            }
+        }
+    }
+
+    private void dispatch(String collection, ChangeStreamDocument<Document> event) {
+        try {
+            switch (collection) {
+                case "messages" -> onMessageChange(event);
+                case "users" -> onUserChange(event);
+                case "rooms" -> onRoomChange(event);
+                default -> {
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to publish {} change {}: {}", collection, event.getOperationType(), e.getMessage());
+        }
+    }
+
+    private void onMessageChange(ChangeStreamDocument<Document> event) {
+        Message after = read(Message.class, event.getFullDocument());
+        Message before = read(Message.class, event.getFullDocumentBeforeChange());
+        String messageId = documentId(event);
+        BsonTimestamp clusterTime = event.getClusterTime();
+
+        switch (event.getOperationType()) {
+            case INSERT -> {
+                messageSearchIndex.add(after);
+                roomStatsService.messageCreated(after.getRoomId(), after.getStatus(), clusterTime);
+                String code = roomCode(after.getRoomId());
+                if (code != null) {
+                    populateSender(after);
+                    if ("approved".equals(after.getStatus())) {
+                        socketService.emitMessageApproved(after, code); // Auto-moderated on arrival
+                    } else {
+                        socketService.emitNewMessage(after, code);
+                    }
+                }
+            }
+            case UPDATE, REPLACE -> {
+                if (fieldUpdated(event, ARCHIVED_FIELD) || fieldUpdated(event, BULK_DELETE_FIELD)) {
+                    silentMessageDeletes.add(messageId);
+                    return;
+                }
+                Indexed known = messageSearchIndex.find(messageId).orElse(null);
+                String roomId = known != null ? known.roomId() : after != null ? after.getRoomId() : null;
+                String previous = before != null ? before.getStatus() : known != null ? known.status() : null;
+                String status = event.getOperationType() == OperationType.UPDATE ? updatedString(event, "status")
+                        : after != null ? after.getStatus() : null;
+                if (roomId == null || status == null || status.equals(previous))
+                    return;
+
+                messageSearchIndex.updateStatus(roomId, messageId, status);
+                roomStatsService.messageStatusChanged(roomId, previous, status, clusterTime);
+                String code = roomCode(roomId);
+                if (code != null && after != null && "approved".equals(status)) {
+                    populateSender(after);
+                    socketService.emitMessageApproved(after, code);
+                }
+            }
+            case DELETE -> {
+                Document preImage = event.getFullDocumentBeforeChange();
+                // Archived, or part of a kick or room delete that clients hear about as one event
+                boolean silent = silentMessageDeletes.remove(messageId) || (preImage != null
+                        && (preImage.getBoolean(ARCHIVED_FIELD, false) || preImage.getBoolean(BULK_DELETE_FIELD, false)));
+                Indexed known = messageSearchIndex.find(messageId).orElse(null);
+                String roomId = before != null ? before.getRoomId() : known != null ? known.roomId() : null;
+                if (roomId == null) {
+                    log.debug("Delete of unknown message {} cannot be attributed to a room; skipped", messageId);
+                    return;
+                }
+                String status = before != null ? before.getStatus() : known.status();
+                messageSearchIndex.remove(roomId, messageId);
+                roomStatsService.messageDeleted(roomId, status, clusterTime);
+
+                String code = silent ? null : roomCode(roomId);
+                if (code != null) {
+                    socketService.broadcastMessageDeleted(messageId, code);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void onUserChange(ChangeStreamDocument<Document> event) {
+        User after = read(User.class, event.getFullDocument());
+        User before = read(User.class, event.getFullDocumentBeforeChange());
+        String userId = documentId(event);
+        BsonTimestamp clusterTime = event.getClusterTime();
+
+        switch (event.getOperationType()) {
+            case INSERT -> {
+                remember(after);
+                roomStatsService.userCreated(after, clusterTime);
+                String code = roomCode(after.getRoom());
+                if (code != null) {
+                    socketService.refreshUserLists(code);
+                }
+            }
+            case UPDATE, REPLACE -> {
+                if (fieldUpdated(event, BULK_DELETE_FIELD)) {
+                    silentUserDeletes.add(userId);
+                    return;
+                }
+                User previous = before != null ? before : knownUsers.get(userId);
+                User current;
+                if (event.getOperationType() == OperationType.UPDATE) {
+                    User base = previous != null ? previous : after;
+                    if (base == null)
+                        return;
+                    current = User.builder().id(userId).room(base.getRoom())
+                            .status(fieldUpdated(event, "status") ? updatedString(event, "status") : base.getStatus())
+                            .online(fieldUpdated(event, "isOnline") ? updatedBoolean(event, "isOnline") : base.isOnline())
+                            .build();
+                } else {
+                    if (after == null)
+                        return;
+                    current = after;
+                }
+                remember(current);
+                String code = roomCode(current.getRoom());
+                if (code == null)
+                    return;
+
+                boolean statusChanged = previous != null ? !Objects.equals(previous.getStatus(), current.getStatus())
+                        : fieldUpdated(event, "status");
+                boolean presenceChanged = previous != null ? previous.isOnline() != current.isOnline()
+                        : fieldUpdated(event, "isOnline");
+                if (previous != null) {
+                    roomStatsService.userStatusChanged(current.getRoom(), previous.getStatus(), current.getStatus(),
+                            clusterTime);
+                    roomStatsService.presenceChanged(current.getRoom(), previous.isOnline(), current.isOnline(),
+                            clusterTime);
+                }
+
+                boolean approvedNow = "approved".equals(current.getStatus());
+                if (approvedNow && statusChanged) {
+                    socketService.emitUserApproved(userId, code);
+                }
+                if (presenceChanged) {
+                    // Reconnect storms change presence for a whole room at once; one refresh per window covers them
+                    socketService.refreshLiveUsers(current.getRoom(), code);
+                    if (!approvedNow) {
+                        // A pending user coming online is someone waiting for admins
+                        socketService.refreshUserLists(code);
+                    }
+                }
+            }
+            case DELETE -> {
+                boolean silent = silentUserDeletes.remove(userId);
+                User known = knownUsers.remove(userId);
+                User previous = before != null ? before : known;
+                if (previous == null || previous.getRoom() == null) {
+                    log.debug("Delete of unknown user {} cannot be attributed to a room; skipped", userId);
+                    return;
+                }
+                roomStatsService.userRemoved(previous, clusterTime);
+                String code = silent ? null : roomCode(previous.getRoom());
+                if (code != null) {
+                    socketService.emitUserKicked(userId, previous.getRoom(), code);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void onRoomChange(ChangeStreamDocument<Document> event) {
+        switch (event.getOperationType()) {
+            case INSERT, UPDATE, REPLACE -> {
+                Room room = read(Room.class, event.getFullDocument());
+                if (room != null) {
+                    roomCodes.put(room.getId(), room.getRoomCode().toUpperCase());
+                    broadcastBatcher.setEnabled(room.getRoomCode(), room.isBroadcastBatching());
+                    if (event.getOperationType() == OperationType.INSERT) {
+                        roomStatsService.roomCreated(room);
+                    }
+                }
+            }
+            case DELETE -> {
+                String roomId = documentId(event);
+                Room before = read(Room.class, event.getFullDocumentBeforeChange());
+                String code = before != null ? before.getRoomCode() : roomCodes.get(roomId);
+                roomCodes.remove(roomId);
+                messageSearchIndex.dropRoom(roomId);
+                roomStatsService.roomDeleted(roomId);
+                if (code != null) {
+                    broadcastBatcher.forgetRoom(code);
+                    socketService.emitRoomDeleted(code);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /** Keeps what a later delete needs to be attributed: room, status and presence. */
+    private void remember(User user) {
+        if (user != null && user.getId() != null && user.getRoom() != null) {
+            knownUsers.put(user.getId(), User.builder().id(user.getId()).room(user.getRoom())
+                    .status(user.getStatus()).online(user.isOnline()).build());
+        }
+    }
+
+    private String roomCode(String roomId) {
+        if (roomId == null)
+            return null;
+        String cached = roomCodes.get(roomId);
+        if (cached != null)
+            return cached;
+        return roomRepository.findById(roomId).map(room -> {
+            String code = room.getRoomCode().toUpperCase();
+            roomCodes.put(roomId, code);
+            return code;
+        }).orElse(null);
+    }
+
+    private void populateSender(Message message) {
+        if (message.getSenderId() != null) {
+            userRepository.findById(message.getSenderId()).ifPresent(message::setSender);
+        }
+    }
+
+    private <T> T read(Class<T> type, Document document) {
+        return document != null ? mongoTemplate.getConverter().read(type, document) : null;
+    }
+
+    private static boolean fieldUpdated(ChangeStreamDocument<Document> event, String field) {
+        UpdateDescription description = event.getUpdateDescription();
+        return description != null && description.getUpdatedFields() != null
+                && description.getUpdatedFields().containsKey(field);
+    }
+
+    private static String updatedString(ChangeStreamDocument<Document> event, String field) {
+        if (!fieldUpdated(event, field))
+            return null;
+        BsonValue value = event.getUpdateDescription().getUpdatedFields().get(field);
+        return value.isString() ? value.asString().getValue() : null;
+    }
+
+    private static boolean updatedBoolean(ChangeStreamDocument<Document> event, String field) {
+        BsonValue value = event.getUpdateDescription().getUpdatedFields().get(field);
+        return value != null && value.isBoolean() && value.asBoolean().getValue();
+    }
+
+    private static String documentId(ChangeStreamDocument<Document> event) {
+        return event.getDocumentKey().get("_id").asObjectId().getValue().toHexString();
+    }
+
+    private BsonDocument loadToken(String collection) {
+        Document saved = mongoTemplate.getCollection(TOKEN_COLLECTION).find(eq("_id", collection)).first();
+        if (saved == null)
+            return null;
+        Document token = saved.get("token", Document.class);
+        return token != null ? BsonDocument.parse(token.toJson()) : null;
+    }
+
+    private void saveToken(String collection, BsonDocument token) {
+        mongoTemplate.getCollection(TOKEN_COLLECTION).replaceOne(eq("_id", collection),
+                new Document("_id", collection).append("token", Document.parse(token.toJson())),
+                new ReplaceOptions().upsert(true));
+    }
+
+    private void sleepBeforeRetry() {
+        try {
+            Thread.sleep(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
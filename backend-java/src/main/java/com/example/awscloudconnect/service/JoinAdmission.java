@@ -0,0 +1,196 @@
+package com.example.awscloudconnect.service;
+
+import com.corundumstudio.socketio.SocketIOClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for {@code join_room}, so a reconnect storm after a deploy
+ * or network blip does not turn into one Mongo round trip per client at once.
+ *
+ * At most {@code admission.join.max-concurrent} joins run per node. Joins
+ * beyond that wait in a queue per room and are admitted round-robin across
+ * rooms, so one huge room cannot starve the others; the client is told with a
+ * {@code join_queued} event carrying its position in the room's queue.
+ *
+ * Joins to the same room within {@code admission.join.snapshot-window-ms}
+ * share one history snapshot and one trailing live-users / user-list refresh.
+ * Snapshots are dropped as soon as the room's history changes.
+ */
+@Slf4j
+@Component
+public class JoinAdmission {
+
+    @Value("${admission.join.max-concurrent:32}")
+    private int maxConcurrent;
+
+    @Value("${admission.join.snapshot-window-ms:500}")
+    private long snapshotWindowMs;
+
+    private ExecutorService workers;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "join-admission");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private final Map<String, ArrayDeque<Runnable>> queues = new HashMap<>();
+    private final ArrayDeque<String> turns = new ArrayDeque<>();
+    private int active;
+    private int queued;
+
+    private final Map<String, Map<String, Snapshot>> snapshots = new ConcurrentHashMap<>();
+    private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+
+    private record Snapshot(long loadedAt, CompletableFuture<Object> value) {
+    }
+
+    @PostConstruct
+    public void init() {
+        workers = Executors.newFixedThreadPool(maxConcurrent, r -> {
+            Thread thread = new Thread(r, "join-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdown();
+        scheduler.shutdown();
+    }
+
+    /** Runs the join now if a slot is free, otherwise queues it behind the room's earlier joins. */
+    public void submit(SocketIOClient client, String roomCode, Runnable join) {
+        Runnable guarded = () -> {
+            // Clients that gave up while waiting would only cost a wasted join
+            if (client.isChannelOpen()) {
+                join.run();
+            }
+        };
+
+        int position;
+        int total;
+        synchronized (this) {
+            if (active < maxConcurrent) {
+                active++;
+                workers.execute(() -> drain(guarded));
+                return;
+            }
+            ArrayDeque<Runnable> queue = queues.get(roomCode);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                queues.put(roomCode, queue);
+                turns.add(roomCode);
+            }
+            queue.add(guarded);
+            position = queue.size();
+            total = ++queued;
+        }
+        if (total == 1) {
+            log.warn("Join admission saturated ({} running); queueing joins", maxConcurrent);
+        }
+        client.sendEvent("join_queued", Map.of("roomCode", roomCode, "position", position));
+    }
+
+    /**
+     * Returns the room's snapshot of {@code kind} if one was loaded within the
+     * window (or is being loaded right now), otherwise loads it.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T snapshot(String roomCode, String kind, Supplier<T> loader) {
+        Map<String, Snapshot> room = snapshots.computeIfAbsent(roomCode, code -> new ConcurrentHashMap<>());
+        long now = System.currentTimeMillis();
+        Snapshot fresh = new Snapshot(now, new CompletableFuture<>());
+        Snapshot current = room.compute(kind, (k, existing) -> existing != null
+                && (!existing.value().isDone() || now - existing.loadedAt() < snapshotWindowMs) ? existing : fresh);
+        if (current != fresh)
+            return (T) current.value().join();
+
+        try {
+            T value = loader.get();
+            fresh.value().complete(value);
+            if (value == null) {
+                room.remove(kind, fresh); // Do not keep answering "not found" for a room created a moment later
+            } else {
+                scheduler.schedule(() -> room.remove(kind, fresh), snapshotWindowMs, TimeUnit.MILLISECONDS);
+            }
+            return value;
+        } catch (RuntimeException e) {
+            room.remove(kind, fresh);
+            fresh.value().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** Drops the room's snapshots; called whenever its history or existence changes. */
+    public void invalidate(String roomCode) {
+        snapshots.remove(roomCode.toUpperCase());
+    }
+
+    /** Runs {@code task} once at the end of the window, however many joins to the room ask for it. */
+    public void refreshOnce(String roomCode, String kind, Runnable task) {
+        String key = roomCode + ":" + kind;
+        if (!pendingRefreshes.add(key))
+            return;
+        scheduler.schedule(() -> {
+            pendingRefreshes.remove(key);
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Join refresh {} failed: {}", key, e.getMessage());
+            }
+        }, snapshotWindowMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Keeps the worker busy with queued joins, taking one room per turn. */
+    private void drain(Runnable join) {
+        Runnable next = join;
+        while (next != null) {
+            try {
+                next.run();
+            } catch (RuntimeException e) {
+                log.error("Join failed: {}", e.getMessage());
+            }
+            synchronized (this) {
+                next = pollNextTurn();
+                if (next == null) {
+                    active--;
+                }
+            }
+        }
+    }
+
+    private Runnable pollNextTurn() {
+        String roomCode = turns.poll();
+        if (roomCode == null)
+            return null;
+        ArrayDeque<Runnable> queue = queues.get(roomCode);
+        Runnable join = queue.poll();
+        if (queue.isEmpty()) {
+            queues.remove(roomCode);
+        } else {
+            turns.add(roomCode);
+        }
+        if (--queued == 0) {
+            log.info("Join admission queue drained");
+        }
+        return join;
+    }
+}
@@ -0,0 +1,558 @@
+package com.example.awscloudconnect.service;
+
+import com.example.awscloudconnect.model.Message;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only, compressed on-disk store for messages that have been moved out
+ * of Mongo by {@link MessageRetentionService}.
+ *
+ * Each room gets its own directory of immutable segment files. A segment is a
+ * sequence of deflated blocks; every block keeps an uncompressed status, ID
+ * and sender table so counts, page offsets, ID lookups and per-sender deletes
+ * are resolved without inflating anything. An in-memory index maps every archived ID to its block,
+ * which also makes appends idempotent.
+ * Segments are memory-mapped read-only once written. Deletions are recorded in
+ * a per-room tombstone log instead of rewriting segments.
+ */
+@Slf4j
+@Component
+public class MessageArchive {
+
+    private static final int MAGIC = 0x4E584152; // "NXAR"
+    private static final int VERSION = 3; // 2 added the per-block ID table, 3 the sender table
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TOMBSTONE_FILE = "deleted.log";
+
+    private static final byte STATUS_DELETED = -1;
+    private static final byte STATUS_PENDING = 0;
+    private static final byte STATUS_APPROVED = 1;
+    private static final byte STATUS_OTHER = 2;
+
+    @Value("${retention.archive-dir:./data/archive}")
+    private String archiveDir;
+
+    @Value("${retention.block-size:256}")
+    private int blockSize;
+
+    private final Map<String, RoomArchive> rooms = new ConcurrentHashMap<>();
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+
+    private record Location(String roomId, Block block, int slot) {
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path root = Paths.get(archiveDir);
+        if (!Files.isDirectory(root))
+            return;
+
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                String roomId = dir.getFileName().toString();
+                rooms.put(roomId, loadRoom(roomId, dir));
+            }
+        }
+        log.info("Message archive opened at {} with {} rooms and {} messages", root.toAbsolutePath(), rooms.size(),
+                index.size());
+    }
+
+    /**
+     * Writes the given messages (oldest first) as a new segment for the room,
+     * skipping any that are already archived, so a sweep that died before
+     * deleting from Mongo can simply run again. The segment only becomes
+     * visible once it has been fully written and synced, so a crash never
+     * leaves a partial segment behind.
+     */
+    public void append(String roomId, List<Message> batch) throws IOException {
+        RoomArchive archive = rooms.computeIfAbsent(roomId, id -> new RoomArchive(Paths.get(archiveDir, id)));
+        synchronized (archive) {
+            List<Message> messages = batch.stream().filter(m -> !index.containsKey(m.getId())).toList();
+            if (messages.isEmpty())
+                return;
+            Files.createDirectories(archive.dir);
+
+            ByteArrayOutputStream segment = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(segment);
+            int blockCount = (messages.size() + blockSize - 1) / blockSize;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(blockCount);
+
+            for (int start = 0; start < messages.size(); start += blockSize) {
+                List<Message> chunk = messages.subList(start, Math.min(start + blockSize, messages.size()));
+                byte[] raw = encodeBlock(chunk);
+                byte[] compressed = deflate(raw);
+                out.writeInt(chunk.size());
+                out.writeInt(raw.length);
+                out.writeInt(compressed.length);
+                for (Message message : chunk) {
+                    out.writeByte(statusCode(message.getStatus()));
+                }
+                for (Message message : chunk) {
+                    writeString(out, message.getId());
+                }
+                writeSenders(out, chunk);
+                out.write(compressed);
+            }
+            out.flush();
+
+            Path target = archive.dir.resolve(String.format("%010d%s", archive.nextSegment, SEGMENT_SUFFIX));
+            Path temp = archive.dir.resolve(target.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(segment.toByteArray()));
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+
+            archive.nextSegment++;
+            addBlocks(roomId, archive, mapSegment(target));
+        }
+    }
+
+    /**
+     * Reads up to {@code limit} archived messages, skipping the {@code skip}
+     * newest ones first. The result is returned oldest first.
+     */
+    public List<Message> readNewest(String roomId, String status, long skip, int limit) {
+        RoomArchive archive = rooms.get(roomId);
+        if (archive == null || limit <= 0)
+            return List.of();
+
+        byte code = status != null ? statusCode(status) : STATUS_DELETED;
+        Deque<Message> result = new ArrayDeque<>();
+        synchronized (archive) {
+            for (int b = archive.blocks.size() - 1; b >= 0 && result.size() < limit; b--) {
+                Block block = archive.blocks.get(b);
+                int matching = block.count(code);
+                if (skip >= matching) {
+                    skip -= matching;
+                    continue;
+                }
+
+                List<Message> decoded = decodeBlock(block);
+                for (int i = block.statuses.length - 1; i >= 0 && result.size() < limit; i--) {
+                    if (!block.matches(i, code))
+                        continue;
+                    if (skip > 0) {
+                        skip--;
+                        continue;
+                    }
+                    result.addFirst(decoded.get(i));
+                }
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Tombstones an archived message by ID. Returns the room the message was
+     * archived under, or empty if it is not in the archive (or already
+     * deleted). Resolved through the index, so unknown IDs cost one lookup.
+     */
+    public Optional<String> deleteMessage(String messageId) {
+        Location location = index.get(messageId);
+        RoomArchive archive = location != null ? rooms.get(location.roomId()) : null;
+        if (archive == null)
+            return Optional.empty();
+
+        synchronized (archive) {
+            byte[] statuses = location.block().statuses;
+            if (statuses[location.slot()] == STATUS_DELETED)
+                return Optional.empty();
+            statuses[location.slot()] = STATUS_DELETED;
+            archive.deletedIds.add(messageId);
+            appendTombstone(archive, "m:" + messageId);
+        }
+        return Optional.of(location.roomId());
+    }
+
+    /** Tombstones every archived message the user sent in the room. */
+    public void deleteBySender(String roomId, String senderId) {
+        RoomArchive archive = rooms.get(roomId);
+        if (archive == null)
+            return;
+
+        synchronized (archive) {
+            if (markDeleted(archive, Collections.singleton(senderId)) > 0) {
+                appendTombstone(archive, "s:" + senderId);
+            }
+        }
+    }
+
+    /** Drops the whole archive of a room. */
+    public void deleteRoom(String roomId) {
+        RoomArchive archive = rooms.remove(roomId);
+        if (archive == null)
+            return;
+
+        synchronized (archive) {
+            try (Stream<Path> files = Files.walk(archive.dir)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to delete archive for room {}: {}", roomId, e.getMessage());
+            }
+            for (Block block : archive.blocks) {
+                for (String id : block.ids) {
+                    index.remove(id);
+                }
+            }
+            archive.blocks.clear();
+        }
+    }
+
+    private void addBlocks(String roomId, RoomArchive archive, List<Block> blocks) {
+        for (Block block : blocks) {
+            for (int i = 0; i < block.ids.length; i++) {
+                index.put(block.ids[i], new Location(roomId, block, i));
+            }
+        }
+        archive.blocks.addAll(blocks);
+    }
+
+    private RoomArchive loadRoom(String roomId, Path dir) throws IOException {
+        RoomArchive archive = new RoomArchive(dir);
+
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(dir)) {
+            segments = files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        for (Path segment : segments) {
+            addBlocks(roomId, archive, mapSegment(segment));
+            String name = segment.getFileName().toString();
+            int seq = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            archive.nextSegment = Math.max(archive.nextSegment, seq + 1);
+        }
+
+        Path tombstones = dir.resolve(TOMBSTONE_FILE);
+        if (Files.exists(tombstones)) {
+            for (String line : Files.readAllLines(tombstones, StandardCharsets.UTF_8)) {
+                if (line.startsWith("m:")) {
+                    archive.deletedIds.add(line.substring(2));
+                } else if (line.startsWith("s:")) {
+                    archive.deletedSenders.add(line.substring(2));
+                }
+            }
+            for (String id : archive.deletedIds) {
+                Location location = index.get(id);
+                if (location != null) {
+                    location.block().statuses[location.slot()] = STATUS_DELETED;
+                }
+            }
+            if (!archive.deletedSenders.isEmpty()) {
+                markDeleted(archive, archive.deletedSenders);
+            }
+        }
+        return archive;
+    }
+
+    private List<Block> mapSegment(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int version = buffer.getInt() == MAGIC ? buffer.getInt() : -1;
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unrecognized archive segment: " + path);
+        }
+        int blockCount = buffer.getInt();
+        List<Block> blocks = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            int count = buffer.getInt();
+            int rawLength = buffer.getInt();
+            int compressedLength = buffer.getInt();
+            byte[] statuses = new byte[count];
+            buffer.get(statuses);
+            String[] ids = new String[count];
+            if (version >= 2) {
+                for (int m = 0; m < count; m++) {
+                    ids[m] = readString(buffer);
+                }
+            }
+            String[] senders = new String[count];
+            if (version >= 3) {
+                readSenders(buffer, senders);
+            }
+            Block block = new Block(buffer, buffer.position(), compressedLength, rawLength, statuses, ids, senders);
+            if (version < 3) {
+                // Segments written before the ID or sender table: read them out of the block once
+                List<Message> decoded = decodeBlock(block);
+                for (int m = 0; m < count; m++) {
+                    ids[m] = decoded.get(m).getId();
+                    senders[m] = decoded.get(m).getSenderId();
+                }
+            }
+            blocks.add(block);
+            buffer.position(buffer.position() + compressedLength);
+        }
+        return blocks;
+    }
+
+    /** Tombstones the live messages of the given senders, using only the sender tables. */
+    private int markDeleted(RoomArchive archive, Set<String> senderIds) {
+        int marked = 0;
+        for (Block block : archive.blocks) {
+            for (int i = 0; i < block.senders.length; i++) {
+                if (block.statuses[i] != STATUS_DELETED && senderIds.contains(block.senders[i])) {
+                    block.statuses[i] = STATUS_DELETED;
+                    marked++;
+                }
+            }
+        }
+        return marked;
+    }
+
+    /**
+     * Writes a block's distinct senders once, followed by one index into that
+     * table per message, so repeated senders cost four bytes each.
+     */
+    private static void writeSenders(DataOutputStream out, List<Message> chunk) throws IOException {
+        Map<String, Integer> table = new HashMap<>();
+        List<String> distinct = new ArrayList<>();
+        int[] slots = new int[chunk.size()];
+        for (int i = 0; i < slots.length; i++) {
+            String senderId = chunk.get(i).getSenderId();
+            Integer slot = table.get(senderId);
+            if (slot == null) {
+                slot = distinct.size();
+                table.put(senderId, slot);
+                distinct.add(senderId);
+            }
+            slots[i] = slot;
+        }
+        out.writeInt(distinct.size());
+        for (String senderId : distinct) {
+            writeString(out, senderId);
+        }
+        for (int slot : slots) {
+            out.writeInt(slot);
+        }
+    }
+
+    private static void readSenders(ByteBuffer buffer, String[] senders) {
+        String[] distinct = new String[buffer.getInt()];
+        for (int i = 0; i < distinct.length; i++) {
+            distinct[i] = readString(buffer);
+        }
+        for (int m = 0; m < senders.length; m++) {
+            senders[m] = distinct[buffer.getInt()];
+        }
+    }
+
+    private void appendTombstone(RoomArchive archive, String entry) {
+        try {
+            Files.writeString(archive.dir.resolve(TOMBSTONE_FILE), entry + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        } catch (IOException e) {
+            log.warn("Failed to persist archive tombstone {}: {}", entry, e.getMessage());
+        }
+    }
+
+    private static byte[] encodeBlock(List<Message> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Message message : messages) {
+            writeString(out, message.getId());
+            writeString(out, message.getRoomId());
+            writeString(out, message.getSenderId());
+            writeString(out, message.getSenderUsername());
+            writeString(out, message.getContent());
+            writeString(out, message.getStatus());
+            out.writeLong(toEpochMilli(message.getCreatedAt()));
+            out.writeLong(toEpochMilli(message.getUpdatedAt()));
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static List<Message> decodeBlock(Block block) {
+        byte[] raw = inflate(block);
+        List<Message> messages = new ArrayList<>(block.statuses.length);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            for (int i = 0; i < block.statuses.length; i++) {
+                Message message = new Message();
+                message.setId(readString(in));
+                message.setRoomId(readString(in));
+                message.setSenderId(readString(in));
+                message.setSenderUsername(readString(in));
+                message.setContent(readString(in));
+                message.setStatus(readString(in));
+                message.setCreatedAt(fromEpochMilli(in.readLong()));
+                message.setUpdatedAt(fromEpochMilli(in.readLong()));
+                messages.add(message);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt archive block", e);
+        }
+        return messages;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(Block block) {
+        ByteBuffer compressed = block.buffer.slice(block.offset, block.compressedLength);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[block.rawLength];
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                read += inflater.inflate(raw, read, raw.length - read);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt archive block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time != null ? time.toInstant(ZoneOffset.UTC).toEpochMilli() : Long.MIN_VALUE;
+    }
+
+    private static LocalDateTime fromEpochMilli(long millis) {
+        return millis != Long.MIN_VALUE ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC)
+                : null;
+    }
+
+    private static byte statusCode(String status) {
+        if ("pending".equals(status))
+            return STATUS_PENDING;
+        if ("approved".equals(status))
+            return STATUS_APPROVED;
+        return STATUS_OTHER;
+    }
+
+    private static final class RoomArchive {
+        final Path dir;
+        final List<Block> blocks = new ArrayList<>();
+        final Set<String> deletedIds = new HashSet<>();
+        final Set<String> deletedSenders = new HashSet<>();
+        int nextSegment;
+
+        RoomArchive(Path dir) {
+            this.dir = dir;
+        }
+    }
+
+    private static final class Block {
+        final MappedByteBuffer buffer;
+        final int offset;
+        final int compressedLength;
+        final int rawLength;
+        final byte[] statuses;
+        final String[] ids;
+        final String[] senders;
+
+        Block(MappedByteBuffer buffer, int offset, int compressedLength, int rawLength, byte[] statuses,
+                String[] ids, String[] senders) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.rawLength = rawLength;
+            this.statuses = statuses;
+            this.ids = ids;
+            this.senders = senders;
+        }
+
+        /** {@link #STATUS_DELETED} as the filter means "any live status". */
+        boolean matches(int index, byte code) {
+            byte status = statuses[index];
+            return status != STATUS_DELETED && (code == STATUS_DELETED || status == code);
+        }
+
+        int count(byte code) {
+            int n = 0;
+            for (int i = 0; i < statuses.length; i++) {
+                if (matches(i, code))
+                    n++;
+            }
+            return n;
+        }
+    }
+}
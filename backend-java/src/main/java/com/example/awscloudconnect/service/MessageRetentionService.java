@@ -0,0 +1,202 @@
+package com.example.awscloudconnect.service;
+
+import com.example.awscloudconnect.model.Message;
+import com.example.awscloudconnect.model.Room;
+import com.example.awscloudconnect.repository.MessageRepository;
+import com.example.awscloudconnect.repository.MessageStore;
+import com.example.awscloudconnect.repository.RoomRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.bson.Document;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves old messages out of Mongo into the {@link MessageArchive} and serves
+ * paginated history reads across both tiers.
+ *
+ * Only the instance holding the retention lease in Mongo sweeps, and it keeps
+ * renewing the lease while it runs, so every archived message lands on that
+ * instance's archive directory. Another instance takes over only once the
+ * holder has stopped renewing. The archive directory must sit on a persistent
+ * volume, or archived history is lost when the container is replaced.
+ */
+@Slf4j
+@Service
+@Lazy(false) // @Scheduled is only picked up on instantiated beans
+public class MessageRetentionService {
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageStore messageStore;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private MessageArchive messageArchive;
+
+    @Autowired
+    private MessageSearchIndex messageSearchIndex;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SocketService socketService;
+
+    @Autowired
+    private RoomStatsService roomStatsService;
+
+    @Value("${retention.enabled:false}")
+    private boolean enabled;
+
+    /** Messages older than this many days are archived (0 disables the age rule). */
+    @Value("${retention.max-age-days:30}")
+    private long maxAgeDays;
+
+    /** Keep at most this many messages per room in Mongo (0 disables the count rule). */
+    @Value("${retention.max-messages-per-room:5000}")
+    private long maxMessagesPerRoom;
+
+    @Value("${retention.batch-size:5000}")
+    private int batchSize;
+
+    /** How long the lease outlives its last renewal; longer than the sweep interval keeps one sweeper. */
+    @Value("${retention.lease-ms:7200000}")
+    private long leaseMs;
+
+    private static final String LEASE_COLLECTION = "retention_lease";
+    private static final String LEASE_ID = "sweep";
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    @Scheduled(initialDelayString = "${retention.sweep-interval-ms:3600000}", fixedDelayString = "${retention.sweep-interval-ms:3600000}")
+    public void sweep() {
+        if (!enabled)
+            return;
+
+        for (Room room : roomRepository.findAll()) {
+            // Renewed per room, so a holder that dies mid-sweep is taken over after one lease period
+            if (!acquireLease()) {
+                log.debug("Retention lease is held by another instance, skipping sweep");
+                return;
+            }
+            try {
+                archiveRoom(room.getId());
+            } catch (IOException e) {
+                log.error("Retention sweep failed for room {}: {}", room.getRoomCode(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Takes or renews the sweep lease. The upsert only matches a lease this
+     * instance already holds or one that has expired; a live lease held by
+     * another instance makes it collide on {@code _id} instead.
+     */
+    private boolean acquireLease() {
+        Date now = new Date();
+        Query query = Query.query(Criteria.where("_id").is(LEASE_ID)
+                .orOperator(Criteria.where("owner").is(owner), Criteria.where("expiresAt").lt(now)));
+        Update update = new Update().set("owner", owner).set("expiresAt", new Date(now.getTime() + leaseMs));
+        try {
+            mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    Document.class, LEASE_COLLECTION);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Archives the oldest messages of a room until both the age and count
+     * limits hold. Pending messages stay in Mongo whatever their age, since
+     * moderators can only approve what {@code approve_message} can find; the
+     * count limit is met as far as approved messages allow. Messages are only removed from Mongo after their segment has
+     * been written; if that delete never happens, the next sweep finds them
+     * already archived, skips re-appending them and only deletes.
+     */
+    public void archiveRoom(String roomId) throws IOException {
+        long total = messageRepository.countByRoomId(roomId);
+        long expired = maxAgeDays > 0
+                ? messageRepository.countByRoomIdAndStatusNotAndCreatedAtBefore(roomId, "pending",
+                        LocalDateTime.now().minusDays(maxAgeDays))
+                : 0;
+        long overflow = maxMessagesPerRoom > 0 ? total - maxMessagesPerRoom : 0;
+        long remaining = Math.max(expired, overflow);
+
+        while (remaining > 0) {
+            int batch = (int) Math.min(remaining, batchSize);
+            List<Message> oldest = messageRepository.findByRoomIdAndStatusNotOrderByCreatedAtAsc(roomId, "pending",
+                    PageRequest.of(0, batch));
+            if (oldest.isEmpty())
+                break;
+
+            messageArchive.append(roomId, oldest);
+            if (socketService.isChangeStreamMode()) {
+                // Flag them first so the change-stream publisher can tell archiving from deletion
+                List<String> ids = oldest.stream().map(Message::getId).toList();
+                mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)),
+                        Update.update(ChangeStreamEventPublisher.ARCHIVED_FIELD, true), Message.class);
+            }
+            messageRepository.deleteAll(oldest);
+            // Search only covers what is still in Mongo; streamed deletes reach it through the publisher
+            if (!socketService.isChangeStreamMode()) {
+                for (Message message : oldest) {
+                    messageSearchIndex.remove(roomId, message.getId());
+                }
+            }
+            remaining -= oldest.size();
+            log.info("Archived {} messages for room {}", oldest.size(), roomId);
+        }
+        if (total > 0 && Math.max(expired, overflow) > 0) {
+            roomStatsService.reconcile(roomId);
+        }
+    }
+
+    /**
+     * Returns one page of a room's history, newest page first, with messages
+     * ordered oldest to newest inside the page. Pages past the end of what is
+     * still in the room's message store are served from the archive.
+     */
+    public List<Message> findHistoryPage(String roomId, String status, int page, int size) {
+        long skip = (long) page * size;
+        long live = messageStore.countByRoomIdAndStatus(roomId, status);
+
+        List<Message> fromStore = new ArrayList<>();
+        if (skip < live) {
+            fromStore.addAll(messageStore.findPageNewestFirst(roomId, status, page, size));
+            Collections.reverse(fromStore);
+        }
+
+        int missing = size - fromStore.size();
+        if (missing <= 0)
+            return fromStore;
+
+        long archiveSkip = Math.max(0, skip - live);
+        List<Message> result = new ArrayList<>(messageArchive.readNewest(roomId, status, archiveSkip, missing));
+        result.addAll(fromStore);
+        return result;
+    }
+}
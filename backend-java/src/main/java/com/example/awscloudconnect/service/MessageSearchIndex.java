@@ -0,0 +1,459 @@
+package com.example.awscloudconnect.service;
+
+import com.example.awscloudconnect.model.Message;
+import com.example.awscloudconnect.repository.MessageRepository;
+import com.example.awscloudconnect.repository.MessagesEvictedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over message content, one per room.
+ *
+ * Every indexed message gets a room-local document number in insertion order,
+ * so posting lists stay sorted without any re-sorting and newest-first paging
+ * is a walk from the end of the intersection. Deletes only flip the document's
+ * status; the slot is skipped at query time, and rooms where at least a
+ * quarter of the slots are deleted are compacted every
+ * {@code search.compact-interval-ms}.
+ *
+ * The index is rebuilt from Mongo in the background when the application
+ * starts, walking {@code _id} order so the scan uses the primary key index,
+ * and kept current by {@link SocketService}, the REST controllers and the
+ * retention sweep. The rebuild fills a fresh map while the old one (empty on a
+ * cold start) keeps serving; changes arriving meanwhile are journaled and
+ * replayed onto the fresh map before it is swapped in, so a delete that beats
+ * the rebuild to its message still applies. A failed rebuild is logged and
+ * leaves the current index in place.
+ */
+@Slf4j
+@Component
+public class MessageSearchIndex {
+
+    private static final byte STATUS_DELETED = -1;
+    private static final byte STATUS_PENDING = 0;
+    private static final byte STATUS_APPROVED = 1;
+    private static final byte STATUS_OTHER = 2;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    private volatile Map<String, RoomIndex> rooms = new ConcurrentHashMap<>();
+
+    // Non-null while a rebuild runs; guarded by journalLock, as is the swap of rooms
+    private final Object journalLock = new Object();
+    private List<Consumer<Map<String, RoomIndex>>> journal;
+    private volatile Map<String, RoomIndex> building;
+
+    /** A page of matching message IDs, newest first, plus the total hit count. */
+    public record SearchResult(long total, List<String> messageIds) {
+    }
+
+    public record Indexed(String roomId, String status) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        Thread thread = new Thread(this::rebuild, "search-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<String, RoomIndex> fresh = new ConcurrentHashMap<>();
+        synchronized (journalLock) {
+            if (journal != null) {
+                log.warn("Search index rebuild already running");
+                return;
+            }
+            journal = new ArrayList<>();
+            building = fresh;
+        }
+
+        long count = 0;
+        try (Stream<Message> messages = messageRepository.streamAllByOrderByIdAsc()) {
+            for (Message message : (Iterable<Message>) messages::iterator) {
+                add(fresh, message);
+                count++;
+            }
+        } catch (RuntimeException e) {
+            synchronized (journalLock) {
+                journal = null;
+                building = null;
+            }
+            log.error("Search index rebuild failed after {} messages; keeping the current index: {}", count,
+                    e.getMessage());
+            return;
+        }
+
+        synchronized (journalLock) {
+            journal.forEach(change -> change.accept(fresh));
+            rooms = fresh;
+            journal = null;
+            building = null;
+        }
+        log.info("Search index rebuilt: {} messages in {} rooms ({} ms)", count, fresh.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /** Drops deleted slots from rooms where they make up at least a quarter of the index. */
+    @Scheduled(initialDelayString = "${search.compact-interval-ms:600000}", fixedDelayString = "${search.compact-interval-ms:600000}")
+    public void compact() {
+        int compacted = 0;
+        for (RoomIndex index : rooms.values()) {
+            index.lock.writeLock().lock();
+            try {
+                if (index.deleted > 0 && index.deleted * 4L >= index.size) {
+                    index.compact();
+                    compacted++;
+                }
+            } finally {
+                index.lock.writeLock().unlock();
+            }
+        }
+        if (compacted > 0) {
+            log.info("Compacted the search index of {} rooms", compacted);
+        }
+    }
+
+    public void add(Message message) {
+        mutate(target -> add(target, message));
+    }
+
+    /** Applies a change to the live map and, during a rebuild, journals it for the fresh one. */
+    private void mutate(Consumer<Map<String, RoomIndex>> change) {
+        Map<String, RoomIndex> target;
+        synchronized (journalLock) {
+            if (journal != null) {
+                journal.add(change);
+            }
+            target = rooms;
+        }
+        change.accept(target);
+    }
+
+    private static void add(Map<String, RoomIndex> rooms, Message message) {
+        if (message.getRoomId() == null || message.getId() == null)
+            return;
+
+        RoomIndex index = rooms.computeIfAbsent(message.getRoomId(), id -> new RoomIndex());
+        index.lock.writeLock().lock();
+        try {
+            if (index.docsById.containsKey(message.getId()))
+                return;
+
+            int doc = index.size++;
+            index.ensureCapacity(index.size);
+            index.ids[doc] = message.getId();
+            index.statuses[doc] = statusCode(message.getStatus());
+            index.docsById.put(message.getId(), doc);
+            if (message.getSenderId() != null) {
+                index.docsBySender.computeIfAbsent(message.getSenderId(), s -> new IntList()).add(doc);
+            }
+            for (String term : tokenize(message.getContent())) {
+                index.postings.computeIfAbsent(term, t -> new IntList()).add(doc);
+            }
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    public void updateStatus(String roomId, String messageId, String status) {
+        mutate(target -> updateStatus(target, roomId, messageId, status));
+    }
+
+    private static void updateStatus(Map<String, RoomIndex> rooms, String roomId, String messageId, String status) {
+        RoomIndex index = roomId != null ? rooms.get(roomId) : null;
+        if (index == null)
+            return;
+
+        index.lock.writeLock().lock();
+        try {
+            Integer doc = index.docsById.get(messageId);
+            if (doc != null && index.statuses[doc] != STATUS_DELETED) {
+                index.statuses[doc] = statusCode(status);
+            }
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String roomId, String messageId) {
+        mutate(target -> remove(target, roomId, messageId));
+    }
+
+    private static void remove(Map<String, RoomIndex> rooms, String roomId, String messageId) {
+        RoomIndex index = roomId != null ? rooms.get(roomId) : null;
+        if (index == null)
+            return;
+
+        index.lock.writeLock().lock();
+        try {
+            Integer doc = index.docsById.remove(messageId);
+            if (doc != null) {
+                index.statuses[doc] = STATUS_DELETED;
+                index.deleted++;
+            }
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    /** Messages dropped by the in-memory store's caps are no longer searchable. */
+    @EventListener
+    public void onEvicted(MessagesEvictedEvent event) {
+        for (Message message : event.messages()) {
+            remove(event.roomId(), message.getId());
+        }
+    }
+
+    public void removeBySender(String roomId, String senderId) {
+        mutate(target -> removeBySender(target, roomId, senderId));
+    }
+
+    private static void removeBySender(Map<String, RoomIndex> rooms, String roomId, String senderId) {
+        RoomIndex index = roomId != null ? rooms.get(roomId) : null;
+        if (index == null)
+            return;
+
+        index.lock.writeLock().lock();
+        try {
+            IntList docs = index.docsBySender.remove(senderId);
+            if (docs != null) {
+                for (int i = 0; i < docs.size; i++) {
+                    int doc = docs.values[i];
+                    if (index.statuses[doc] != STATUS_DELETED) {
+                        index.statuses[doc] = STATUS_DELETED;
+                        index.docsById.remove(index.ids[doc]);
+                        index.deleted++;
+                    }
+                }
+            }
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    public void dropRoom(String roomId) {
+        mutate(target -> target.remove(roomId));
+    }
+
+    /**
+     * Room and status of an indexed message. The index holds every message still
+     * in Mongo, so the change-stream publisher uses it to attribute deletes that
+     * arrive without a pre-image.
+     */
+    public Optional<Indexed> find(String messageId) {
+        Optional<Indexed> found = find(rooms, messageId);
+        Map<String, RoomIndex> partial = building;
+        // While a rebuild runs the live map may not have the message yet
+        return found.isPresent() || partial == null ? found : find(partial, messageId);
+    }
+
+    private static Optional<Indexed> find(Map<String, RoomIndex> rooms, String messageId) {
+        for (Map.Entry<String, RoomIndex> room : rooms.entrySet()) {
+            RoomIndex index = room.getValue();
+            index.lock.readLock().lock();
+            try {
+                Integer doc = index.docsById.get(messageId);
+                if (doc != null)
+                    return Optional.of(new Indexed(room.getKey(), statusName(index.statuses[doc])));
+            } finally {
+                index.lock.readLock().unlock();
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Finds messages in the room containing every word of the query, optionally
+     * restricted to one status. Pages are counted from the newest match.
+     */
+    public SearchResult search(String roomId, String query, String status, int page, int size) {
+        RoomIndex index = rooms.get(roomId);
+        Set<String> terms = tokenize(query);
+        if (index == null || terms.isEmpty())
+            return new SearchResult(0, List.of());
+
+        byte code = status != null ? statusCode(status) : STATUS_DELETED;
+        index.lock.readLock().lock();
+        try {
+            // Intersect shortest posting list first so later merges shrink quickly
+            List<IntList> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                IntList postings = index.postings.get(term);
+                if (postings == null)
+                    return new SearchResult(0, List.of());
+                lists.add(postings);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+            int[] hits = Arrays.copyOf(lists.get(0).values, lists.get(0).size);
+            int hitCount = hits.length;
+            for (int l = 1; l < lists.size() && hitCount > 0; l++) {
+                hitCount = intersect(hits, hitCount, lists.get(l));
+            }
+
+            long skip = (long) page * size;
+            long total = 0;
+            List<String> ids = new ArrayList<>(Math.min(size, hitCount));
+            for (int i = hitCount - 1; i >= 0; i--) {
+                byte docStatus = index.statuses[hits[i]];
+                if (docStatus == STATUS_DELETED || (code != STATUS_DELETED && docStatus != code))
+                    continue;
+                if (total >= skip && ids.size() < size) {
+                    ids.add(index.ids[hits[i]]);
+                }
+                total++;
+            }
+            return new SearchResult(total, ids);
+        } finally {
+            index.lock.readLock().unlock();
+        }
+    }
+
+    /** Intersects the sorted prefix {@code hits[0..count)} with a posting list in place. */
+    private static int intersect(int[] hits, int count, IntList postings) {
+        int out = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < postings.size; i++) {
+            int doc = hits[i];
+            while (j < postings.size && postings.values[j] < doc) {
+                j++;
+            }
+            if (j < postings.size && postings.values[j] == doc) {
+                hits[out++] = doc;
+            }
+        }
+        return out;
+    }
+
+    /** Lower-cases and splits on anything that is not a letter or digit. */
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null)
+            return terms;
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static String statusName(byte code) {
+        if (code == STATUS_PENDING)
+            return "pending";
+        if (code == STATUS_APPROVED)
+            return "approved";
+        return null;
+    }
+
+    private static byte statusCode(String status) {
+        if ("pending".equals(status))
+            return STATUS_PENDING;
+        if ("approved".equals(status))
+            return STATUS_APPROVED;
+        return STATUS_OTHER;
+    }
+
+    private static final class RoomIndex {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final Map<String, IntList> postings = new HashMap<>();
+        final Map<String, Integer> docsById = new HashMap<>();
+        final Map<String, IntList> docsBySender = new HashMap<>();
+        String[] ids = new String[64];
+        byte[] statuses = new byte[64];
+        int size;
+        int deleted;
+
+        /** Renumbers live documents densely, keeping their order; caller holds the write lock. */
+        void compact() {
+            int[] remap = new int[size];
+            int live = 0;
+            for (int doc = 0; doc < size; doc++) {
+                remap[doc] = statuses[doc] == STATUS_DELETED ? -1 : live++;
+            }
+
+            String[] liveIds = new String[Math.max(64, live)];
+            byte[] liveStatuses = new byte[liveIds.length];
+            docsById.clear();
+            for (int doc = 0; doc < size; doc++) {
+                if (remap[doc] >= 0) {
+                    liveIds[remap[doc]] = ids[doc];
+                    liveStatuses[remap[doc]] = statuses[doc];
+                    docsById.put(ids[doc], remap[doc]);
+                }
+            }
+            postings.values().removeIf(list -> list.remap(remap) == 0);
+            docsBySender.values().removeIf(list -> list.remap(remap) == 0);
+
+            ids = liveIds;
+            statuses = liveStatuses;
+            size = live;
+            deleted = 0;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > ids.length) {
+                int grown = Math.max(capacity, ids.length * 2);
+                ids = Arrays.copyOf(ids, grown);
+                statuses = Arrays.copyOf(statuses, grown);
+            }
+        }
+    }
+
+    /** Growable primitive int list, used for posting lists. */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        /** Rewrites document numbers, dropping removed ones; returns the new size. */
+        int remap(int[] remap) {
+            int out = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = remap[values[i]];
+                if (doc >= 0) {
+                    values[out++] = doc;
+                }
+            }
+            size = out;
+            if (values.length > 16 && size < values.length / 4) {
+                values = Arrays.copyOf(values, Math.max(4, size * 2));
+            }
+            return size;
+        }
+    }
+}
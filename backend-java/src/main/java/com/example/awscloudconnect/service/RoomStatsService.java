@@ -0,0 +1,427 @@
+package com.example.awscloudconnect.service;
+
+import com.corundumstudio.socketio.SocketIOServer;
+import com.example.awscloudconnect.model.Message;
+import com.example.awscloudconnect.model.Room;
+import com.example.awscloudconnect.model.User;
+import com.example.awscloudconnect.repository.MessageStore;
+import com.example.awscloudconnect.repository.MessagesEvictedEvent;
+import com.example.awscloudconnect.repository.RoomRepository;
+import com.example.awscloudconnect.repository.UserRepository;
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.ReadConcern;
+import com.mongodb.client.ClientSession;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonTimestamp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Per-room counters for the SuperAdmin and Admin dashboards, kept current by
+ * the mutations in {@link SocketService} and the REST controllers so the views
+ * no longer need to pull full user and message lists just to count them.
+ *
+ * Changed rooms get a {@code room_stats} push to their {@code admin_<code>}
+ * room (admins and superadmins) at most once per second.
+ * Counters are periodically reconciled against Mongo to absorb anything that
+ * bypassed this instance (other instances, direct database edits). Writes
+ * reported here go through {@link #runTracked} / {@link #callTracked}, so a
+ * recount sees each of them either with its delta or not at all.
+ *
+ * In change-stream mode the counters of every instance follow the change
+ * events instead, and a recount records the cluster time it counted at so
+ * events it already includes are not applied again.
+ */
+@Slf4j
+@Service
+public class RoomStatsService {
+
+    private static final int RATE_WINDOW_SECONDS = 60;
+
+    private static final int PENDING_USERS = 0;
+    private static final int APPROVED_USERS = 1;
+    private static final int ONLINE_USERS = 2;
+    private static final int PENDING_MESSAGES = 3;
+    private static final int APPROVED_MESSAGES = 4;
+    private static final int COUNTERS = 5;
+    private static final String[] COUNTER_NAMES = { "pendingUsers", "approvedUsers", "onlineUsers",
+            "pendingMessages", "approvedMessages" };
+
+    @Autowired
+    private SocketIOServer server;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MessageStore messageStore;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${events.change-streams.enabled:false}")
+    private boolean changeStreamEvents;
+
+    private final Map<String, RoomCounters> rooms = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${stats.reconcile-interval-ms:300000}", fixedDelayString = "${stats.reconcile-interval-ms:300000}")
+    public void reconcileAll() {
+        // Also runs on the ready event, where an exception would abort startup; counters recover on the next pass
+        try {
+            for (Room room : roomRepository.findAll()) {
+                try {
+                    reconcile(room);
+                } catch (RuntimeException e) {
+                    log.error("Room stats reconcile failed for room {}: {}", room.getRoomCode(), e.getMessage());
+                }
+            }
+            rooms.keySet().removeIf(roomId -> !roomRepository.existsById(roomId));
+        } catch (RuntimeException e) {
+            log.error("Room stats reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.push-interval-ms:1000}")
+    public void pushChanged() {
+        for (RoomCounters counters : rooms.values()) {
+            if (counters.dirty && counters.roomCode != null) {
+                counters.dirty = false;
+                // Only the dashboards show these, and messagesPerMinute keeps busy rooms dirty every second
+                server.getRoomOperations("admin_" + counters.roomCode).sendEvent("room_stats", snapshot(counters));
+            }
+        }
+    }
+
+    /**
+     * Recounts a room from Mongo, replacing whatever the counters had drifted to.
+     * Tracked writes and streamed deltas for the room wait until the count is
+     * taken; never call this from inside a tracked write.
+     */
+    public void reconcile(Room room) {
+        RoomCounters counters = counters(room.getId());
+        counters.writes.writeLock().lock();
+        try {
+            long[] counts = new long[COUNTERS];
+            BsonTimestamp[] countedAt = new BsonTimestamp[COUNTERS];
+            if (changeStreamEvents) {
+                countAtClusterTime(room.getId(), counts, countedAt);
+            } else {
+                counts[PENDING_USERS] = userRepository.countByRoomAndStatus(room.getId(), "pending");
+                counts[APPROVED_USERS] = userRepository.countByRoomAndStatus(room.getId(), "approved");
+                counts[ONLINE_USERS] = userRepository.countByRoomAndOnline(room.getId(), true);
+                counts[PENDING_MESSAGES] = messageStore.countByRoomIdAndStatus(room.getId(), "pending");
+                counts[APPROVED_MESSAGES] = messageStore.countByRoomIdAndStatus(room.getId(), "approved");
+            }
+            synchronized (counters) {
+                counters.roomCode = room.getRoomCode().toUpperCase();
+                System.arraycopy(counts, 0, counters.counts, 0, COUNTERS);
+                System.arraycopy(countedAt, 0, counters.countedAt, 0, COUNTERS);
+                counters.dirty = true;
+            }
+        } finally {
+            counters.writes.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Counts at majority read concern and notes the cluster time of each count.
+     * Change events are only delivered once majority-committed, so an event at
+     * or before that time is already in the count.
+     */
+    private void countAtClusterTime(String roomId, long[] counts, BsonTimestamp[] countedAt) {
+        ClientSessionOptions options = ClientSessionOptions.builder().causallyConsistent(true).build();
+        try (ClientSession session = mongoTemplate.getMongoDatabaseFactory().getSession(options)) {
+            MongoTemplate ops = mongoTemplate.withSession(session);
+            count(session, ops, PENDING_USERS, Criteria.where("room").is(roomId).and("status").is("pending"),
+                    User.class, counts, countedAt);
+            count(session, ops, APPROVED_USERS, Criteria.where("room").is(roomId).and("status").is("approved"),
+                    User.class, counts, countedAt);
+            count(session, ops, ONLINE_USERS, Criteria.where("room").is(roomId).and("online").is(true), User.class,
+                    counts, countedAt);
+            if (messageStore.isPersistent(roomId)) {
+                count(session, ops, PENDING_MESSAGES,
+                        Criteria.where("roomId").is(roomId).and("status").is("pending"), Message.class, counts,
+                        countedAt);
+                count(session, ops, APPROVED_MESSAGES,
+                        Criteria.where("roomId").is(roomId).and("status").is("approved"), Message.class, counts,
+                        countedAt);
+            } else {
+                // In-memory rooms never reach a change stream, so there is nothing to line up with
+                counts[PENDING_MESSAGES] = messageStore.countByRoomIdAndStatus(roomId, "pending");
+                counts[APPROVED_MESSAGES] = messageStore.countByRoomIdAndStatus(roomId, "approved");
+            }
+        }
+    }
+
+    private static void count(ClientSession session, MongoTemplate ops, int counter, Criteria criteria, Class<?> type,
+            long[] counts, BsonTimestamp[] countedAt) {
+        counts[counter] = ops.count(Query.query(criteria).withReadConcern(ReadConcern.MAJORITY), type);
+        countedAt[counter] = session.getOperationTime();
+    }
+
+    /**
+     * Runs a write to the room together with the hook reporting it, so a
+     * concurrent reconcile counts both or neither instead of counting the write
+     * and then applying its delta on top.
+     */
+    public void runTracked(String roomId, Runnable write) {
+        callTracked(roomId, () -> {
+            write.run();
+            return null;
+        });
+    }
+
+    public <T> T callTracked(String roomId, Supplier<T> write) {
+        if (roomId == null)
+            return write.get();
+
+        ReentrantReadWriteLock.ReadLock lock = counters(roomId).writes.readLock();
+        lock.lock();
+        try {
+            return write.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void reconcile(String roomId) {
+        if (roomId != null) {
+            roomRepository.findById(roomId).ifPresent(this::reconcile);
+        }
+    }
+
+    public void roomCreated(Room room) {
+        RoomCounters counters = counters(room.getId());
+        counters.roomCode = room.getRoomCode().toUpperCase();
+    }
+
+    public void roomDeleted(String roomId) {
+        rooms.remove(roomId);
+    }
+
+    // Local hooks. In change-stream mode they only count what never reaches a
+    // stream (in-memory rooms); the publisher reports everything else through the
+    // variants taking the event's cluster time, on every instance alike.
+
+    public void userCreated(User user) {
+        userCreated(user, null);
+    }
+
+    public void userCreated(User user, BsonTimestamp clusterTime) {
+        update(user.getRoom(), changeStreamEvents, clusterTime,
+                c -> adjustStatus(c, user.getStatus(), 1, clusterTime));
+    }
+
+    public void userRemoved(User user) {
+        userRemoved(user, null);
+    }
+
+    public void userRemoved(User user, BsonTimestamp clusterTime) {
+        update(user.getRoom(), changeStreamEvents, clusterTime, c -> {
+            adjustStatus(c, user.getStatus(), -1, clusterTime);
+            if (user.isOnline()) {
+                adjust(c, ONLINE_USERS, -1, clusterTime);
+            }
+        });
+    }
+
+    public void userStatusChanged(String roomId, String from, String to) {
+        userStatusChanged(roomId, from, to, null);
+    }
+
+    public void userStatusChanged(String roomId, String from, String to, BsonTimestamp clusterTime) {
+        if (from != null && from.equals(to))
+            return;
+        update(roomId, changeStreamEvents, clusterTime, c -> {
+            adjustStatus(c, from, -1, clusterTime);
+            adjustStatus(c, to, 1, clusterTime);
+        });
+    }
+
+    public void presenceChanged(String roomId, boolean wasOnline, boolean online) {
+        presenceChanged(roomId, wasOnline, online, null);
+    }
+
+    public void presenceChanged(String roomId, boolean wasOnline, boolean online, BsonTimestamp clusterTime) {
+        if (wasOnline == online)
+            return;
+        update(roomId, changeStreamEvents, clusterTime, c -> adjust(c, ONLINE_USERS, online ? 1 : -1, clusterTime));
+    }
+
+    public void messageCreated(String roomId, String status) {
+        messageCreated(roomId, status, null);
+    }
+
+    public void messageCreated(String roomId, String status, BsonTimestamp clusterTime) {
+        update(roomId, messagesStreamed(roomId), clusterTime, c -> {
+            if (adjustMessages(c, status, 1, clusterTime)) {
+                c.recordMessage(System.currentTimeMillis() / 1000);
+            }
+        });
+    }
+
+    public void messageStatusChanged(String roomId, String from, String to) {
+        messageStatusChanged(roomId, from, to, null);
+    }
+
+    public void messageStatusChanged(String roomId, String from, String to, BsonTimestamp clusterTime) {
+        if (from != null && from.equals(to))
+            return;
+        update(roomId, messagesStreamed(roomId), clusterTime, c -> {
+            adjustMessages(c, from, -1, clusterTime);
+            adjustMessages(c, to, 1, clusterTime);
+        });
+    }
+
+    public void messageDeleted(String roomId, String status) {
+        messageDeleted(roomId, status, null);
+    }
+
+    public void messageDeleted(String roomId, String status, BsonTimestamp clusterTime) {
+        update(roomId, messagesStreamed(roomId), clusterTime, c -> adjustMessages(c, status, -1, clusterTime));
+    }
+
+    @EventListener
+    public void onEvicted(MessagesEvictedEvent event) {
+        update(event.roomId(), false, null, c -> {
+            for (Message message : event.messages()) {
+                adjustMessages(c, message.getStatus(), -1, null);
+            }
+        });
+    }
+
+    /** Current counters for a room, loading them from Mongo on first use. */
+    public Map<String, Object> stats(Room room) {
+        RoomCounters counters = rooms.get(room.getId());
+        if (counters == null || counters.roomCode == null) {
+            reconcile(room);
+            counters = rooms.get(room.getId());
+        }
+        return snapshot(counters);
+    }
+
+    private Map<String, Object> snapshot(RoomCounters counters) {
+        synchronized (counters) {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("roomCode", counters.roomCode);
+            for (int i = 0; i < COUNTERS; i++) {
+                stats.put(COUNTER_NAMES[i], counters.counts[i]);
+            }
+            stats.put("messagesPerMinute", counters.messagesInWindow(System.currentTimeMillis() / 1000));
+            return stats;
+        }
+    }
+
+    private RoomCounters counters(String roomId) {
+        return rooms.computeIfAbsent(roomId, id -> new RoomCounters());
+    }
+
+    private boolean messagesStreamed(String roomId) {
+        return changeStreamEvents && messageStore.isPersistent(roomId);
+    }
+
+    /**
+     * Applies a change from exactly one source: local hooks ({@code clusterTime}
+     * null) for changes that are not streamed, change events for those that are.
+     */
+    private void update(String roomId, boolean streamed, BsonTimestamp clusterTime, Consumer<RoomCounters> change) {
+        if (streamed != (clusterTime != null))
+            return;
+        // Rooms without a baseline yet are counted from scratch on their first reconcile
+        RoomCounters counters = roomId != null ? rooms.get(roomId) : null;
+        if (counters == null || counters.roomCode == null)
+            return;
+
+        // Streamed deltas wait out a running recount, then compare against its cluster times
+        ReentrantReadWriteLock.ReadLock lock = streamed ? counters.writes.readLock() : null;
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            synchronized (counters) {
+                change.accept(counters);
+                counters.dirty = true;
+            }
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Adds {@code delta} unless the counter was recounted at or after the event; returns whether it did. */
+    private static boolean adjust(RoomCounters c, int counter, int delta, BsonTimestamp clusterTime) {
+        BsonTimestamp countedAt = c.countedAt[counter];
+        if (clusterTime != null && countedAt != null && clusterTime.compareTo(countedAt) <= 0)
+            return false;
+        c.counts[counter] += delta;
+        return true;
+    }
+
+    private static void adjustStatus(RoomCounters c, String status, int delta, BsonTimestamp clusterTime) {
+        if ("pending".equals(status)) {
+            adjust(c, PENDING_USERS, delta, clusterTime);
+        } else if ("approved".equals(status)) {
+            adjust(c, APPROVED_USERS, delta, clusterTime);
+        }
+    }
+
+    private static boolean adjustMessages(RoomCounters c, String status, int delta, BsonTimestamp clusterTime) {
+        if ("pending".equals(status))
+            return adjust(c, PENDING_MESSAGES, delta, clusterTime);
+        if ("approved".equals(status))
+            return adjust(c, APPROVED_MESSAGES, delta, clusterTime);
+        return false;
+    }
+
+    private static final class RoomCounters {
+        // Read side held by tracked writes, write side by reconcile
+        final ReentrantReadWriteLock writes = new ReentrantReadWriteLock();
+        volatile String roomCode;
+        volatile boolean dirty;
+        final long[] counts = new long[COUNTERS];
+        // Cluster time of each counter's last recount in change-stream mode, null otherwise
+        final BsonTimestamp[] countedAt = new BsonTimestamp[COUNTERS];
+
+        // One bucket per second over the last minute, tagged with the second it counts
+        final long[] rateBuckets = new long[RATE_WINDOW_SECONDS];
+        final long[] rateSeconds = new long[RATE_WINDOW_SECONDS];
+
+        void recordMessage(long nowSecond) {
+            int slot = (int) (nowSecond % RATE_WINDOW_SECONDS);
+            if (rateSeconds[slot] != nowSecond) {
+                rateSeconds[slot] = nowSecond;
+                rateBuckets[slot] = 0;
+            }
+            rateBuckets[slot]++;
+        }
+
+        long messagesInWindow(long nowSecond) {
+            long total = 0;
+            for (int i = 0; i < RATE_WINDOW_SECONDS; i++) {
+                if (nowSecond - rateSeconds[i] < RATE_WINDOW_SECONDS) {
+                    total += rateBuckets[i];
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -1,26 +1,42 @@
 package com.example.awscloudconnect.service;
 
+import com.corundumstudio.socketio.SocketIOClient;
 import com.corundumstudio.socketio.SocketIOServer;
 import com.corundumstudio.socketio.listener.ConnectListener;
 import com.corundumstudio.socketio.listener.DataListener;
 import com.corundumstudio.socketio.listener.DisconnectListener;
+import com.example.awscloudconnect.model.LiveUserView;
 import com.example.awscloudconnect.model.Message;
+import com.example.awscloudconnect.model.MessageView;
 import com.example.awscloudconnect.model.Room;
 import com.example.awscloudconnect.model.User;
-import com.example.awscloudconnect.repository.MessageRepository;
+import com.example.awscloudconnect.repository.MessageStore;
+import com.example.awscloudconnect.repository.MongoReadRouter;
+import com.example.awscloudconnect.repository.WriteDurability;
+import com.example.awscloudconnect.repository.WriteDurability.OperationClass;
 import com.example.awscloudconnect.repository.RoomRepository;
 import com.example.awscloudconnect.repository.UserRepository;
+import com.example.awscloudconnect.service.TermMatcher.Verdict;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Service
+@Lazy(false) // Must start listening even when lazy initialization is on
 public class SocketService {
 
     @Autowired
@@ -33,7 +49,40 @@ public class SocketService {
     private UserRepository userRepository;
 
     @Autowired
-    private MessageRepository messageRepository;
+    private MessageStore messageStore;
+
+    @Autowired
+    private MessageArchive messageArchive;
+
+    @Autowired
+    private MessageSearchIndex messageSearchIndex;
+
+    @Autowired
+    private BroadcastBatcher broadcastBatcher;
+
+    @Autowired
+    private RoomStatsService roomStatsService;
+
+    @Autowired
+    private MongoReadRouter mongoReadRouter;
+
+    @Autowired
+    private JoinAdmission joinAdmission;
+
+    @Autowired
+    private AutoModerator autoModerator;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * When set, mutation notifications come from {@link ChangeStreamEventPublisher}
+     * and this service only sends replies to the client that asked.
+     */
+    @Value("${events.change-streams.enabled:false}")
+    private boolean changeStreamEvents;
+
+    private final AtomicBoolean firstConnection = new AtomicBoolean(true);
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @PostConstruct
@@ -65,6 +114,10 @@ public class SocketService {
     private ConnectListener onConnected() {
         return client -> {
             log.info("Client connected: {}", client.getSessionId());
+            if (firstConnection.compareAndSet(true, false)) {
+                long sinceStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+                log.info("First socket connection accepted {} ms after JVM start", sinceStart);
+            }
         };
     }
 
@@ -72,24 +125,104 @@ public class SocketService {
         return client -> {
             log.info("Client disconnected: {}", client.getSessionId());
             userRepository.findBySocketId(client.getSessionId().toString()).ifPresent(user -> {
-                user.setOnline(false);
-                user.setSocketId(null);
-                userRepository.save(user);
+                boolean wasOnline = user.isOnline();
+                roomStatsService.runTracked(user.getRoom(), () -> {
+                    WriteDurability.run(OperationClass.PRESENCE,
+                            () -> userRepository.findAndSetPresenceById(user.getId(), false, null));
+                    roomStatsService.presenceChanged(user.getRoom(), wasOnline, false);
+                });
 
                 // Notify superadmins of the update
                 Room room = roomRepository.findById(user.getRoom()).orElse(null);
-                if (room != null) {
-                    broadcastLiveUsers(room.getId(), room.getRoomCode());
+                if (room != null && !changeStreamEvents) {
+                    refreshLiveUsers(room.getId(), room.getRoomCode());
                 }
             });
         };
     }
 
-    private void broadcastLiveUsers(String roomId, String roomCode) {
-        List<User> liveUsers = userRepository.findByRoomAndStatusAndOnline(roomId, "approved", true);
+    public boolean isChangeStreamMode() {
+        return changeStreamEvents;
+    }
+
+    /** Messages of in-memory rooms never reach a change stream, so those are always emitted directly. */
+    public boolean isMessageChangeStreamed(String roomId) {
+        return changeStreamEvents && messageStore.isPersistent(roomId);
+    }
+
+    public void broadcastLiveUsers(String roomId, String roomCode) {
+        List<LiveUserView> liveUsers = userRepository.findByRoomAndStatusAndOnline(roomId, "approved", true)
+                .stream().map(LiveUserView::of).toList();
         server.getRoomOperations("room_" + roomCode.toUpperCase()).sendEvent("superadmin_live_users", liveUsers);
     }
 
+    public void emitRefreshUserLists(String roomCode) {
+        server.getRoomOperations("room_" + roomCode.toUpperCase()).sendEvent("refresh_user_lists");
+    }
+
+    /** Live-user refreshes for a room coalesce into one query and frame per admission window. */
+    public void refreshLiveUsers(String roomId, String roomCode) {
+        String formatted = roomCode.toUpperCase();
+        joinAdmission.refreshOnce(formatted, "live_users", () -> broadcastLiveUsers(roomId, formatted));
+    }
+
+    /** Likewise for {@code refresh_user_lists}, which makes every admin dashboard refetch. */
+    public void refreshUserLists(String roomCode) {
+        String formatted = roomCode.toUpperCase();
+        joinAdmission.refreshOnce(formatted, "user_lists", () -> emitRefreshUserLists(formatted));
+    }
+
+    public void emitNewMessage(Message message, String roomCode) {
+        String formatted = roomCode.toUpperCase();
+        joinAdmission.invalidate(formatted);
+        // Send to everyone in the chat room immediately (since only approved users can
+        // chat)
+        MessageView view = MessageView.of(message);
+        if (broadcastBatcher.isEnabled(formatted)) {
+            broadcastBatcher.enqueueReceive(formatted, view);
+        } else {
+            server.getRoomOperations("room_" + formatted).sendEvent("receive_message", view);
+        }
+
+        // Also send to admins/moderators in the room for broadcast approval
+        server.getRoomOperations("admin_" + formatted).sendEvent("new_pending_message", message);
+    }
+
+    public void emitMessageApproved(Message message, String roomCode) {
+        String formatted = roomCode.toUpperCase();
+        joinAdmission.invalidate(formatted);
+        if (broadcastBatcher.isEnabled(formatted)) {
+            broadcastBatcher.enqueueBroadcast(formatted, message);
+            broadcastBatcher.enqueueReceive(formatted, MessageView.of(message));
+        } else {
+            server.getRoomOperations("broadcast_" + formatted).sendEvent("broadcast_message", message);
+            server.getRoomOperations("room_" + formatted).sendEvent("receive_message", MessageView.of(message));
+        }
+        // Only the moderation panel tracks approvals; chat clients already got receive_message
+        server.getRoomOperations("admin_" + formatted).sendEvent("message_approved", message);
+    }
+
+    public void emitUserApproved(String userId, String roomCode) {
+        String formatted = roomCode.toUpperCase();
+        server.getRoomOperations("room_" + formatted).sendEvent("user_approved", userId);
+        server.getRoomOperations("room_" + formatted).sendEvent("refresh_user_lists");
+    }
+
+    public void emitUserKicked(String userId, String roomId, String roomCode) {
+        String formatted = roomCode.toUpperCase();
+        joinAdmission.invalidate(formatted); // The kick also deleted the user's messages
+        server.getRoomOperations("room_" + formatted).sendEvent("user_kicked", userId);
+        server.getRoomOperations("room_" + formatted).sendEvent("refresh_user_lists");
+        if (roomId != null) {
+            broadcastLiveUsers(roomId, formatted);
+        }
+    }
+
+    public void emitRoomDeleted(String roomCode) {
+        joinAdmission.invalidate(roomCode);
+        server.getRoomOperations("room_" + roomCode.toUpperCase()).sendEvent("room_deleted");
+    }
+
     private DataListener<Map<String, Object>> onJoinRoom() {
         return (client, data, ackSender) -> {
             Map<String, Object> mapData = (Map<String, Object>) data;
@@ -120,60 +253,83 @@ public class SocketService {
             }
 
             String formattedCode = roomCode.trim().toUpperCase();
-            Room room = roomRepository.findByRoomCode(formattedCode).orElse(null);
+            joinAdmission.submit(client, formattedCode, () -> joinRoom(client, formattedCode, role, userId));
+        };
+    }
 
-            if (room == null) {
-                client.sendEvent("room_not_found");
-                return;
-            }
+    private void joinRoom(SocketIOClient client, String formattedCode, String role, String userId) {
+        Room room = joinAdmission.snapshot(formattedCode, "room",
+                () -> roomRepository.findByRoomCode(formattedCode).orElse(null));
 
-            client.joinRoom(formattedCode);
-            client.joinRoom("room_" + formattedCode);
+        if (room == null) {
+            client.sendEvent("room_not_found");
+            return;
+        }
 
-            System.out.println(
-                    "DEBUG: Client " + client.getSessionId() + " joined room_" + formattedCode + " as " + role);
+        client.joinRoom(formattedCode);
+        client.joinRoom("room_" + formattedCode);
 
-            if (userId != null) {
-                userRepository.findById(userId).ifPresent(user -> {
-                    user.setOnline(true);
-                    user.setSocketId(client.getSessionId().toString());
-                    userRepository.save(user);
-
-                    // If user is already approved (e.g. from a previous session or while offline),
-                    // tell them to move to the approved state in the UI.
-                    if ("approved".equals(user.getStatus())) {
-                        client.sendEvent("user_approved", user.getId());
-                    }
+        System.out.println(
+                "DEBUG: Client " + client.getSessionId() + " joined room_" + formattedCode + " as " + role);
+
+        if (userId != null) {
+            userRepository.findById(userId).ifPresent(user -> {
+                boolean wasOnline = user.isOnline();
+                roomStatsService.runTracked(user.getRoom(), () -> {
+                    WriteDurability.run(OperationClass.PRESENCE, () -> userRepository
+                            .findAndSetPresenceById(user.getId(), true, client.getSessionId().toString()));
+                    roomStatsService.presenceChanged(user.getRoom(), wasOnline, true);
                 });
-            }
 
-            if ("user".equals(role)) {
-                List<Message> messages = messageRepository.findByRoomIdOrderByCreatedAtAsc(room.getId());
-                populateMessages(messages);
-                client.sendEvent("load_messages", messages);
-                // Notify admins that someone is waiting
-                server.getRoomOperations("room_" + formattedCode).sendEvent("refresh_user_lists");
-            } else if ("admin".equals(role)) {
-                List<Message> pending = messageRepository.findByRoomIdAndStatusOrderByCreatedAtAsc(room.getId(),
-                        "pending");
-                populateMessages(pending);
-                client.sendEvent("load_pending_messages", pending);
-            } else if ("broadcast".equals(role)) {
-                client.joinRoom("broadcast_" + formattedCode);
-                List<Message> approved = messageRepository.findByRoomIdAndStatusOrderByCreatedAtAsc(room.getId(),
-                        "approved");
-                populateMessages(approved);
-                client.sendEvent("load_broadcast_messages", approved);
-            } else if ("superadmin".equals(role)) {
-                broadcastLiveUsers(room.getId(), formattedCode);
-                // Also give them the current pending count trigger
-                client.sendEvent("refresh_user_lists");
+                // If user is already approved (e.g. from a previous session or while offline),
+                // tell them to move to the approved state in the UI.
+                if ("approved".equals(user.getStatus())) {
+                    client.sendEvent("user_approved", user.getId());
+                }
+            });
+        }
+
+        // Joins arriving together share one history read and one round of list refreshes
+        if ("user".equals(role)) {
+            List<MessageView> messages = joinAdmission.snapshot(formattedCode, "messages", () -> {
+                List<Message> all = messageStore.findByRoomId(room.getId());
+                // The view only needs the denormalized username, so only legacy messages need a lookup
+                populateMessages(all.stream().filter(m -> m.getSenderUsername() == null).toList());
+                return all.stream().map(MessageView::of).toList();
+            });
+            client.sendEvent("load_messages", messages);
+            // Notify admins that someone is waiting
+            if (!changeStreamEvents) {
+                refreshUserLists(formattedCode);
             }
+        } else if ("admin".equals(role)) {
+            client.joinRoom("admin_" + formattedCode);
+            List<Message> pending = joinAdmission.snapshot(formattedCode, "pending", () -> {
+                List<Message> found = messageStore.findByRoomIdAndStatus(room.getId(), "pending");
+                populateMessages(found);
+                return found;
+            });
+            client.sendEvent("load_pending_messages", pending);
+        } else if ("broadcast".equals(role)) {
+            client.joinRoom("broadcast_" + formattedCode);
+            List<Message> approved = joinAdmission.snapshot(formattedCode, "approved", () -> {
+                List<Message> found = messageStore.findByRoomIdAndStatus(room.getId(), "approved");
+                populateMessages(found);
+                return found;
+            });
+            client.sendEvent("load_broadcast_messages", approved);
+        } else if ("superadmin".equals(role)) {
+            client.joinRoom("admin_" + formattedCode);
+            refreshLiveUsers(room.getId(), formattedCode);
+            // Also give them the current pending count trigger
+            client.sendEvent("refresh_user_lists");
+        }
 
-            // Notify superadmins of the new connection
-            broadcastLiveUsers(room.getId(), formattedCode);
-            log.info("Role {} joined room {}. UserID: {}", role, formattedCode, userId);
-        };
+        // Notify superadmins of the new connection
+        if (!changeStreamEvents) {
+            refreshLiveUsers(room.getId(), formattedCode);
+        }
+        log.info("Role {} joined room {}. UserID: {}", role, formattedCode, userId);
     }
 
     private DataListener<Map<String, Object>> onSendMessage() {
@@ -199,28 +355,41 @@ public class SocketService {
                 return;
             }
 
+            Verdict verdict = autoModerator.review(room, content.trim());
+            if (verdict == Verdict.REJECT) {
+                log.info("Auto-moderation rejected a message from {} in room {}", sender.getId(), formattedCode);
+                client.sendEvent("message_rejected", Map.of("content", content.trim()));
+                return;
+            }
+
             Message message = new Message();
             message.setRoomId(room.getId());
             message.setSenderId(sender.getId());
             message.setSenderUsername(sender.getUsername());
             message.setContent(content.trim());
-            message.setStatus("pending");
-            Message savedMessage = messageRepository.save(message);
+            message.setStatus(verdict == Verdict.APPROVE ? "approved" : "pending");
+            Message savedMessage = roomStatsService.callTracked(room.getId(), () -> {
+                Message saved = WriteDurability.call(OperationClass.MESSAGE_INSERT, () -> messageStore.save(message));
+                roomStatsService.messageCreated(room.getId(), saved.getStatus());
+                return saved;
+            });
+            messageSearchIndex.add(savedMessage);
 
             System.out.println("DEBUG: Message saved. ID: " + savedMessage.getId() + ", Room: " + formattedCode
                     + ", content: " + content);
 
+            if (isMessageChangeStreamed(room.getId()))
+                return;
+
             // Populate for real-time emission
             savedMessage.setSender(sender);
 
             System.out.println("DEBUG: Emitting message to room_" + formattedCode);
-
-            // Send to everyone in the chat room immediately (since only approved users can
-            // chat)
-            server.getRoomOperations("room_" + formattedCode).sendEvent("receive_message", savedMessage);
-
-            // Also send to admins/moderators in the room for broadcast approval
-            server.getRoomOperations("room_" + formattedCode).sendEvent("new_pending_message", savedMessage);
+            if ("approved".equals(savedMessage.getStatus())) {
+                emitMessageApproved(savedMessage, formattedCode);
+            } else {
+                emitNewMessage(savedMessage, formattedCode);
+            }
         };
     }
 
@@ -228,19 +397,19 @@ public class SocketService {
         return (client, data, ackSender) -> {
             Map<String, Object> mapData = (Map<String, Object>) data;
             String messageId = (String) mapData.get("messageId");
-            messageRepository.findById(messageId).ifPresent(message -> {
+            messageStore.findById(messageId).ifPresent(message -> {
+                String previousStatus = message.getStatus();
                 message.setStatus("approved");
-                messageRepository.save(message);
-
-                if (message.getRoomId() != null) {
+                roomStatsService.runTracked(message.getRoomId(), () -> {
+                    WriteDurability.run(OperationClass.APPROVAL, () -> messageStore.saveModerated(message));
+                    roomStatsService.messageStatusChanged(message.getRoomId(), previousStatus, "approved");
+                });
+                if (message.getRoomId() != null && !isMessageChangeStreamed(message.getRoomId())) {
+                    messageSearchIndex.updateStatus(message.getRoomId(), messageId, "approved");
                     roomRepository.findById(message.getRoomId()).ifPresent(room -> {
-                        String roomCode = room.getRoomCode().toUpperCase();
                         // Populate sender for display
                         userRepository.findById(message.getSenderId()).ifPresent(message::setSender);
-
-                        server.getRoomOperations("broadcast_" + roomCode).sendEvent("broadcast_message", message);
-                        server.getRoomOperations("room_" + roomCode).sendEvent("receive_message", message);
-                        server.getRoomOperations("room_" + roomCode).sendEvent("message_approved", message);
+                        emitMessageApproved(message, room.getRoomCode());
                     });
                 }
             });
@@ -258,13 +427,18 @@ public class SocketService {
 
     public void approveUser(String userId, String roomCode) {
         userRepository.findById(userId).ifPresent(user -> {
+            String previousStatus = user.getStatus();
             user.setStatus("approved");
-            userRepository.save(user);
+            roomStatsService.runTracked(user.getRoom(), () -> {
+                WriteDurability.run(OperationClass.APPROVAL,
+                        () -> mongoReadRouter.moderationWrite(user.getRoom(), ops -> ops.updateFirst(
+                                Query.query(Criteria.where("id").is(userId)), Update.update("status", "approved"),
+                                User.class)));
+                roomStatsService.userStatusChanged(user.getRoom(), previousStatus, "approved");
+            });
 
-            if (roomCode != null) {
-                String formatted = roomCode.toUpperCase();
-                server.getRoomOperations("room_" + formatted).sendEvent("user_approved", userId);
-                server.getRoomOperations("room_" + formatted).sendEvent("refresh_user_lists");
+            if (roomCode != null && !changeStreamEvents) {
+                emitUserApproved(userId, roomCode);
             }
         });
     }
@@ -284,26 +458,31 @@ public class SocketService {
             String roomId = user.getRoom();
             log.info("Deleting User: {} from Room: {}", user.getUsername(), roomId);
 
-            // "Remove completely" from DB
-            messageRepository.deleteBySenderId(userId);
+            // "Remove completely" from DB; streamed deletes reach the search index through the publisher
+            boolean streamed = isMessageChangeStreamed(roomId);
+            if (streamed) {
+                markBulkDelete(Criteria.where("senderId").is(userId), Message.class);
+            }
+            messageStore.deleteBySenderId(roomId, userId);
+            if (roomId != null) {
+                messageArchive.deleteBySender(roomId, userId);
+                if (!streamed) {
+                    messageSearchIndex.removeBySender(roomId, userId);
+                }
+            }
             userRepository.deleteById(userId);
+            // The kick also removed an unknown number of messages, so recount the room
+            roomStatsService.reconcile(roomId);
 
             // Notify about the kick and trigger UI refresh for all admins
+            if (changeStreamEvents)
+                return;
             if (roomId != null) {
-                roomRepository.findById(roomId).ifPresent(room -> {
-                    String rCode = room.getRoomCode().toUpperCase();
-                    server.getRoomOperations("room_" + rCode).sendEvent("user_kicked", userId);
-                    server.getRoomOperations("room_" + rCode).sendEvent("refresh_user_lists");
-                    broadcastLiveUsers(roomId, rCode);
-                });
+                roomRepository.findById(roomId).ifPresent(room -> emitUserKicked(userId, roomId, room.getRoomCode()));
             } else if (roomCode != null) {
                 String formatted = roomCode.toUpperCase();
-                server.getRoomOperations("room_" + formatted).sendEvent("user_kicked", userId);
-                server.getRoomOperations("room_" + formatted).sendEvent("refresh_user_lists");
-
-                roomRepository.findByRoomCode(formatted).ifPresent(r -> {
-                    broadcastLiveUsers(r.getId(), formatted);
-                });
+                String resolvedRoomId = roomRepository.findByRoomCode(formatted).map(Room::getId).orElse(null);
+                emitUserKicked(userId, resolvedRoomId, formatted);
             }
         }, () -> log.warn("Kick Failed - User {} not found", userId));
     }
@@ -322,11 +501,26 @@ public class SocketService {
 
         String formattedCode = roomCode.trim().toUpperCase();
         roomRepository.findByRoomCode(formattedCode).ifPresent(room -> {
+            if (changeStreamEvents) {
+                markBulkDelete(Criteria.where("room").is(room.getId()), User.class);
+            }
+            if (isMessageChangeStreamed(room.getId())) {
+                markBulkDelete(Criteria.where("roomId").is(room.getId()), Message.class);
+            }
             userRepository.deleteAll(userRepository.findByRoom(room.getId()));
-            messageRepository.deleteByRoomId(room.getId());
+            messageStore.deleteByRoomId(room.getId());
+            joinAdmission.invalidate(formattedCode);
+            mongoReadRouter.forgetRoom(room.getId());
+            autoModerator.forgetRoom(room.getId());
+            messageArchive.deleteRoom(room.getId());
+            messageSearchIndex.dropRoom(room.getId());
+            roomStatsService.roomDeleted(room.getId());
+            broadcastBatcher.forgetRoom(formattedCode);
             roomRepository.delete(room);
 
-            server.getRoomOperations("room_" + formattedCode).sendEvent("room_deleted");
+            if (!changeStreamEvents) {
+                emitRoomDeleted(formattedCode);
+            }
         });
     }
 
@@ -344,13 +538,15 @@ public class SocketService {
                     log.info("User {} logging out from room {}. Deleting...", user.getUsername(), roomId);
 
                     // "Remove completely" from everything on logout
-                    userRepository.deleteById(userId);
+                    roomStatsService.runTracked(roomId, () -> {
+                        userRepository.deleteById(userId);
+                        roomStatsService.userRemoved(user);
+                    });
 
                     Room room = roomRepository.findById(roomId).orElse(null);
-                    if (room != null) {
+                    if (room != null && !changeStreamEvents) {
                         broadcastLiveUsers(room.getId(), room.getRoomCode());
-                        server.getRoomOperations("room_" + room.getRoomCode().toUpperCase())
-                                .sendEvent("refresh_user_lists");
+                        emitRefreshUserLists(room.getRoomCode());
                     }
                 });
             }
@@ -359,18 +555,30 @@ public class SocketService {
                 client.leaveRoom(formatted);
                 client.leaveRoom("room_" + formatted);
                 client.leaveRoom("broadcast_" + formatted);
-                server.getRoomOperations("room_" + formatted).sendEvent("refresh_user_lists");
+                client.leaveRoom("admin_" + formatted);
+                if (!changeStreamEvents) {
+                    emitRefreshUserLists(formatted);
+                }
             }
         };
     }
 
+    /**
+     * Flags documents a kick or room delete is about to remove, so the change
+     * stream reports the removal once for the room instead of once per document.
+     */
+    private void markBulkDelete(Criteria criteria, Class<?> type) {
+        mongoTemplate.updateMulti(Query.query(criteria),
+                Update.update(ChangeStreamEventPublisher.BULK_DELETE_FIELD, true), type);
+    }
+
     /** Emits message_deleted to all channels so every UI updates immediately. */
     public void broadcastMessageDeleted(String messageId, String roomCode) {
         if (roomCode == null)
             return;
         String formatted = roomCode.trim().toUpperCase();
-        server.getRoomOperations("room_" + formatted).sendEvent("message_deleted", messageId);
-        server.getRoomOperations("broadcast_" + formatted).sendEvent("message_deleted", messageId);
+        joinAdmission.invalidate(formatted);
+        broadcastBatcher.deleteMessage(formatted, messageId);
     }
 
     /**
@@ -385,7 +593,7 @@ public class SocketService {
                 return;
             String formattedCode = roomCode.trim().toUpperCase();
             roomRepository.findByRoomCode(formattedCode).ifPresent(room -> {
-                List<Message> pending = messageRepository.findByRoomIdAndStatusOrderByCreatedAtAsc(room.getId(),
+                List<Message> pending = messageStore.findByRoomIdAndStatus(room.getId(),
                         "pending");
                 populateMessages(pending);
                 client.sendEvent("load_pending_messages", pending);
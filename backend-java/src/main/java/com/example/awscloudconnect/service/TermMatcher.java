@@ -0,0 +1,234 @@
+package com.example.awscloudconnect.service;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A room's blocked and allowed terms compiled into one Aho-Corasick automaton,
+ * so a message is classified in a single case-insensitive pass however many
+ * terms the room has.
+ *
+ * A blocked term found as a whole word rejects the message. A blocked term
+ * found only inside a longer word ("ass" in "class") is ambiguous and leaves
+ * the message for a moderator, unless an allowed term covers that occurrence;
+ * allowed terms exist to whitelist such words. Anything else is clean.
+ *
+ * Instances are immutable and safe to share between threads.
+ */
+public final class TermMatcher {
+
+    public enum Verdict {
+        APPROVE,
+        PENDING,
+        REJECT
+    }
+
+    private static final TermMatcher EMPTY = compile(Set.of(), Set.of());
+
+    private final char[] alphabet; // sorted; class of alphabet[i] is i + 1, 0 is "no pattern has it"
+    private final int[] asciiClass = new int[128];
+    private final int width;
+    private final int[] delta; // complete transition table, states * width
+    private final int[] blockLength; // length of the blocked term ending in a state, 0 if none
+    private final int[] allowLength;
+    private final int[] outputLink; // nearest proper suffix state that ends a term, 0 if none
+    private final int patterns;
+
+    private TermMatcher(char[] alphabet, int[] delta, int[] blockLength, int[] allowLength, int[] outputLink,
+            int patterns) {
+        this.alphabet = alphabet;
+        this.width = alphabet.length + 1;
+        for (int i = 0; i < alphabet.length && alphabet[i] < 128; i++) {
+            asciiClass[alphabet[i]] = i + 1;
+        }
+        this.delta = delta;
+        this.blockLength = blockLength;
+        this.allowLength = allowLength;
+        this.outputLink = outputLink;
+        this.patterns = patterns;
+    }
+
+    public static TermMatcher empty() {
+        return EMPTY;
+    }
+
+    public static TermMatcher compile(Collection<String> blocked, Collection<String> allowed) {
+        Set<String> blockedTerms = normalize(blocked);
+        Set<String> allowedTerms = normalize(allowed);
+
+        TreeSet<Character> chars = new TreeSet<>();
+        for (String term : blockedTerms) {
+            term.chars().forEach(c -> chars.add((char) c));
+        }
+        for (String term : allowedTerms) {
+            term.chars().forEach(c -> chars.add((char) c));
+        }
+        char[] alphabet = new char[chars.size()];
+        int a = 0;
+        for (char c : chars) {
+            alphabet[a++] = c;
+        }
+        int width = alphabet.length + 1;
+
+        // Trie; state 0 is the root and doubles as "no transition" while building
+        int maxStates = 1;
+        for (String term : blockedTerms) {
+            maxStates += term.length();
+        }
+        for (String term : allowedTerms) {
+            maxStates += term.length();
+        }
+        int[] delta = new int[maxStates * width];
+        int[] blockLength = new int[maxStates];
+        int[] allowLength = new int[maxStates];
+        int states = 1;
+        for (String term : blockedTerms) {
+            int state = 0;
+            for (int i = 0; i < term.length(); i++) {
+                int slot = state * width + classOf(alphabet, term.charAt(i));
+                if (delta[slot] == 0) {
+                    delta[slot] = states++;
+                }
+                state = delta[slot];
+            }
+            blockLength[state] = term.length();
+        }
+        for (String term : allowedTerms) {
+            int state = 0;
+            for (int i = 0; i < term.length(); i++) {
+                int slot = state * width + classOf(alphabet, term.charAt(i));
+                if (delta[slot] == 0) {
+                    delta[slot] = states++;
+                }
+                state = delta[slot];
+            }
+            allowLength[state] = term.length();
+        }
+
+        // Breadth-first: failure links, then fill missing transitions from them
+        int[] fail = new int[states];
+        int[] outputLink = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < width; c++) {
+            int child = delta[c];
+            if (child != 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int c = 0; c < width; c++) {
+                int slot = state * width + c;
+                int child = delta[slot];
+                int viaFail = delta[fail[state] * width + c];
+                if (child == 0) {
+                    delta[slot] = viaFail;
+                    continue;
+                }
+                fail[child] = viaFail;
+                int suffix = fail[child];
+                outputLink[child] = blockLength[suffix] > 0 || allowLength[suffix] > 0 ? suffix : outputLink[suffix];
+                queue.add(child);
+            }
+        }
+
+        return new TermMatcher(alphabet, Arrays.copyOf(delta, states * width), Arrays.copyOf(blockLength, states),
+                Arrays.copyOf(allowLength, states), outputLink, blockedTerms.size() + allowedTerms.size());
+    }
+
+    public int patternCount() {
+        return patterns;
+    }
+
+    public Verdict classify(String content) {
+        if (patterns == 0 || content == null)
+            return Verdict.APPROVE;
+
+        String text = content.toLowerCase(Locale.ROOT);
+        int[] blockHits = new int[8]; // start, end pairs (end exclusive)
+        int[] allowHits = new int[8];
+        int blocks = 0;
+        int allows = 0;
+
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = delta[state * width + classOf(text.charAt(i))];
+            int out = blockLength[state] > 0 || allowLength[state] > 0 ? state : outputLink[state];
+            while (out != 0) {
+                if (blockLength[out] > 0) {
+                    if (blocks * 2 == blockHits.length) {
+                        blockHits = Arrays.copyOf(blockHits, blockHits.length * 2);
+                    }
+                    blockHits[blocks * 2] = i + 1 - blockLength[out];
+                    blockHits[blocks * 2 + 1] = i + 1;
+                    blocks++;
+                }
+                if (allowLength[out] > 0) {
+                    if (allows * 2 == allowHits.length) {
+                        allowHits = Arrays.copyOf(allowHits, allowHits.length * 2);
+                    }
+                    allowHits[allows * 2] = i + 1 - allowLength[out];
+                    allowHits[allows * 2 + 1] = i + 1;
+                    allows++;
+                }
+                out = outputLink[out];
+            }
+        }
+
+        boolean ambiguous = false;
+        for (int b = 0; b < blocks; b++) {
+            int start = blockHits[b * 2];
+            int end = blockHits[b * 2 + 1];
+            if (covered(allowHits, allows, start, end))
+                continue;
+            if (isWordStart(text, start) && isWordEnd(text, end))
+                return Verdict.REJECT;
+            ambiguous = true;
+        }
+        return ambiguous ? Verdict.PENDING : Verdict.APPROVE;
+    }
+
+    private int classOf(char c) {
+        if (c < 128)
+            return asciiClass[c];
+        int index = Arrays.binarySearch(alphabet, c);
+        return index >= 0 ? index + 1 : 0;
+    }
+
+    private static int classOf(char[] alphabet, char c) {
+        return Arrays.binarySearch(alphabet, c) + 1;
+    }
+
+    private static boolean covered(int[] allowHits, int allows, int start, int end) {
+        for (int a = 0; a < allows; a++) {
+            if (allowHits[a * 2] <= start && allowHits[a * 2 + 1] >= end)
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isWordStart(String text, int start) {
+        return start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1));
+    }
+
+    private static boolean isWordEnd(String text, int end) {
+        return end == text.length() || !Character.isLetterOrDigit(text.charAt(end));
+    }
+
+    private static Set<String> normalize(Collection<String> terms) {
+        Set<String> normalized = new LinkedHashSet<>();
+        if (terms != null) {
+            for (String term : terms) {
+                if (term != null && !term.isBlank()) {
+                    normalized.add(term.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return normalized;
+    }
+}
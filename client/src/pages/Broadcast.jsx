@@ -46,6 +46,15 @@ const Broadcast = () => {
       });
     });
 
+    // Rooms with broadcast batching send several messages per frame
+    socket.on("broadcast_messages", (msgs) => {
+      setMessages((prev) => {
+        const seen = new Set(prev.map((m) => m.id || m._id));
+        const fresh = (msgs || []).filter((m) => !seen.has(m.id || m._id));
+        return fresh.length ? [...prev, ...fresh] : prev;
+      });
+    });
+
     socket.on("message_deleted", (messageId) => {
       setMessages((prev) => prev.filter((m) => (m.id || m._id) !== messageId));
     });
@@ -70,6 +79,7 @@ const Broadcast = () => {
       socket.off("disconnect");
       socket.off("load_broadcast_messages");
       socket.off("broadcast_message");
+      socket.off("broadcast_messages");
       socket.off("message_deleted");
       socket.off("room_deleted");
       socket.off("auth_failed");
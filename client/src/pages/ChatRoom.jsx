@@ -447,13 +447,20 @@ const ChatInterface = ({ roomCode, userId, socket, onLogout, username }) => {
   const [message, setMessage] = useState("");
   const [messages, setMessages] = useState([]);
   const [sending, setSending] = useState(false);
+  const [queuePosition, setQueuePosition] = useState(null);
+  const [rejected, setRejected] = useState(null);
   const scrollRef = useRef(null);
 
   useEffect(() => {
     if (!socket) return;
     socket.emit("join_room", { roomCode, role: "user", userId });
 
-    socket.on("load_messages", (msgs) => setMessages(msgs || []));
+    // Sent instead of an immediate join while the server works through a reconnect storm
+    socket.on("join_queued", (info) => setQueuePosition(info?.position ?? null));
+    socket.on("load_messages", (msgs) => {
+      setQueuePosition(null);
+      setMessages(msgs || []);
+    });
     socket.on("receive_message", (msg) => {
       setMessages((prev) => {
         const msgId = msg.id || msg._id;
@@ -461,6 +468,17 @@ const ChatInterface = ({ roomCode, userId, socket, onLogout, username }) => {
         return [...prev, msg];
       });
     });
+    // Rooms with broadcast batching send several messages per frame
+    socket.on("receive_messages", (msgs) => {
+      setMessages((prev) => {
+        const seen = new Set(prev.map((m) => m.id || m._id));
+        const fresh = (msgs || []).filter((m) => !seen.has(m.id || m._id));
+        return fresh.length ? [...prev, ...fresh] : prev;
+      });
+    });
+
+    // Auto-moderation turned the last message down; it was never stored
+    socket.on("message_rejected", (info) => setRejected(info?.content || ""));
 
     socket.on("user_kicked", (kickedUserId) => {
       if (String(kickedUserId) === String(userId)) onLogout();
@@ -469,8 +487,11 @@ const ChatInterface = ({ roomCode, userId, socket, onLogout, username }) => {
     socket.on("room_deleted", () => onLogout());
 
     return () => {
+      socket.off("join_queued");
       socket.off("load_messages");
       socket.off("receive_message");
+      socket.off("receive_messages");
+      socket.off("message_rejected");
       socket.off("user_kicked");
       socket.off("room_deleted");
     };
@@ -485,6 +506,7 @@ const ChatInterface = ({ roomCode, userId, socket, onLogout, username }) => {
   const sendMessage = () => {
     if (!message.trim() || sending) return;
     setSending(true);
+    setRejected(null);
     socket.emit("send_message", { userId, roomCode, content: message.trim() });
     setMessage("");
     setSending(false);
@@ -521,9 +543,23 @@ const ChatInterface = ({ roomCode, userId, socket, onLogout, username }) => {
           <span>Authorized system transmission established.</span>
         </div>
 
+        {queuePosition !== null && (
+          <div className="encryption-banner">
+            <Loader2 size={14} className="animate-spin" />
+            <span>Reconnecting... position {queuePosition} in queue.</span>
+          </div>
+        )}
+
+        {rejected !== null && (
+          <div className="encryption-banner" onClick={() => setRejected(null)}>
+            <AlertCircle size={14} />
+            <span>Your message was blocked by room moderation.</span>
+          </div>
+        )}
+
         <div className="message-list">
           {messages.map((msg, idx) => {
-            const isOwn = String(msg.sender?.id || msg.sender) === String(userId);
+            const isOwn = String(msg.sender?.id || msg.senderId || msg.sender) === String(userId);
             const senderName = msg.sender?.username || msg.senderUsername || "User";
 
             return (